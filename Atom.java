@@ -1,17 +1,24 @@
 /*****************************************************************************
   * Atom.java
   * Author: Olivia Waring
-  * Represents an "atom" within the framework of Type Logical Grammar
+  * Represents an "atom" within the framework of Type Logical Grammar; atoms
+  * are immutable values (apart from the IDs a grammar stamps on them), so
+  * equal atoms may be shared, and a grammar interns those of its entries
   *****************************************************************************/
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class Atom {
-    private String simpleType; // atom type
-    private int adjoint; // adjoint value
-    private boolean isGeneric; // whether the atom is generic
-    private ArrayList<Marker> markers; // morphological markings
-    private ArrayList<Atom> atomList; // list of the atoms a generic atom represents
+    private final String simpleType; // atom type
+    private final int adjoint; // adjoint value
+    private final boolean isGeneric; // whether the atom is generic
+    private final List<Marker> markers; // morphological markings (read-only)
+    private final List<Atom> atomList; // atoms a generic atom represents (read-only)
+    private int id; // grammar-assigned atom type ID (-1 until resolved)
+    private int signature; // grammar-assigned marker signature (-1 until resolved)
+    private int hash; // cached hash code (0 until computed)
 
     // Return a new, completely neutral atom
     public Atom()
@@ -21,6 +28,8 @@ public class Atom {
         isGeneric = false;
         markers = null;
         atomList = null;
+        id = -1;
+        signature = -1;
     }
     
     // Return a new atom with a specified type and adjoint
@@ -34,6 +43,8 @@ public class Atom {
             isGeneric = false;
         markers = null;
         atomList = null;
+        id = -1;
+        signature = -1;
     }
     
     // Return a new atom in accordance with a descriptive string
@@ -54,16 +65,19 @@ public class Atom {
             isGeneric = false;
         
         // Iterate through any markers and add to list (a marker can be null!)
-        markers = new ArrayList<Marker>();
+        ArrayList<Marker> marks = new ArrayList<Marker>();
         for (int k = 1; k < subsubatomic.length; k++)
         {
-            markers.add(new Marker(k-1, Integer.parseInt(subsubatomic[k])));
+            marks.add(new Marker(k-1, Integer.parseInt(subsubatomic[k])));
         }
+        markers = Collections.unmodifiableList(marks);
         atomList = null;
+        id = -1;
+        signature = -1;
     }
 
     // Return a new atom with a specified type, adjoint, and marker set
-    public Atom(String s, int a, ArrayList<Marker> marks)
+    public Atom(String s, int a, List<Marker> marks)
     {
         simpleType = s;
         adjoint = a; 
@@ -71,8 +85,10 @@ public class Atom {
             isGeneric = true;
         else
             isGeneric = false;
-        markers = marks; // person, case, tense-mood, gender, number, etc.
+        markers = readOnly(marks); // person, case, tense-mood, gender, number, etc.
         atomList = null;
+        id = -1;
+        signature = -1;
     } 
    
     // Return a new atom with a specified type, adjoint, and generic character
@@ -83,68 +99,52 @@ public class Atom {
         isGeneric = generic;
         markers = null;
         atomList = null;
+        id = -1;
+        signature = -1;
     }
     
     // Return a new atom with a specified type, adjoint, generic character, and
     // atom list
-    public Atom(String s, int a, boolean generic, ArrayList<Atom> atoms)
+    public Atom(String s, int a, boolean generic, List<Atom> atoms)
     {
         simpleType = s;
         adjoint = a; 
         isGeneric = generic;
         markers = null;
-        atomList = atoms; // list of possible values the generic atom stands for
+        atomList = readOnly(atoms); // list of possible values the generic atom stands for
+        id = -1;
+        signature = -1;
     }
     
     // Return a new atom with a specified type, adjoint, generic character, 
     // marker set, and atom list
-    public Atom(String s, int a, boolean generic, ArrayList<Marker> marks, 
-                ArrayList<Atom> atoms)
+    public Atom(String s, int a, boolean generic, List<Marker> marks, 
+                List<Atom> atoms)
     {
         simpleType = s;
         adjoint = a; 
         isGeneric = generic;
-        markers = marks; // person, case, tense-mood, gender, number, etc.
-        atomList = atoms; // list of possible atoms the generic atom stands for
+        markers = readOnly(marks); // person, case, tense-mood, gender, number, etc.
+        atomList = readOnly(atoms); // list of possible atoms the generic atom stands for
+        id = -1;
+        signature = -1;
     } 
 
-    // Return a copy of the atom in question
+    // Return a copy of the atom in question; atoms are immutable, so the 
+    // atom itself serves
     public Atom copy()
     {
-        Atom newAtom;
-        
-        // Copy atom list for generic atoms
-        if ((isGeneric) && (atomList != null))
-        {
-            ArrayList<Atom> newAtoms = new ArrayList<Atom>();
-            for (Atom a: atomList)
-            {
-                Atom tempAtom = a.copy();
-                newAtoms.add(tempAtom);
-            }
-            newAtom = new Atom(simpleType, adjoint, true, newAtoms);
-        }
-        
-        // Copy marker list (if necessary) for nongeneric atoms
-        else
-        {
-            assert(atomList == null):"Nongeneric atom should not have atom list:" + this.toString();
-            ArrayList<Marker> newMarkers = new ArrayList<Marker>();
-            if (markers != null)
-            {
-                
-                for (Marker m: markers)
-                {
-                    Marker tempMarker = m.copy();
-                    newMarkers.add(tempMarker);   
-                }
-            }
-            else 
-            {
-                newMarkers = null;
-            }
-            newAtom = new Atom(simpleType, adjoint, isGeneric, newMarkers, atomList);
-        }
+        return this;
+    }
+    
+    // Return an atom like this one but with the given adjoint value
+    public Atom withAdjoint(int a)
+    {
+        if (a == adjoint)
+            return this;
+        Atom newAtom = new Atom(simpleType, a, isGeneric, markers, atomList);
+        newAtom.id = id;
+        newAtom.signature = signature;
         return newAtom;
     }
     
@@ -187,16 +187,34 @@ public class Atom {
         return simpleType;
     }
     
-    // Return adjoint value
-    public int getAdjoint()
+    // Return atom type ID, or -1 if no grammar has resolved this atom yet
+    public int getId()
     {
-        return adjoint;
+        return id;
+    }
+    
+    // Set atom type ID
+    public void setId(int i)
+    {
+        id = i;
+    }
+    
+    // Return marker signature, or -1 if no grammar has resolved this atom yet
+    public int getSignature()
+    {
+        return signature;
     }
     
-    // Set adjoint value
-    public void setAdjoint(int i) 
+    // Set marker signature
+    public void setSignature(int i)
     {
-        adjoint = i;
+        signature = i;
+    }
+    
+    // Return adjoint value
+    public int getAdjoint()
+    {
+        return adjoint;
     }
     
     // Return true if atom is generic, false otherwise
@@ -205,14 +223,14 @@ public class Atom {
         return isGeneric;
     }
     
-    // Return list of atoms that a generic atom represents
-    public ArrayList<Atom> getAtoms()
+    // Return (read-only) list of atoms that a generic atom represents
+    public List<Atom> getAtoms()
     {
         return atomList;
     }
     
-    // Return list of markers
-    public ArrayList<Marker> getMarkers()
+    // Return (read-only) list of markers
+    public List<Marker> getMarkers()
     {
         return markers;
     }
@@ -230,12 +248,6 @@ public class Atom {
         return markerString;
     }
     
-    // Set list of atoms represented by a generic atom
-    public void setAtoms(ArrayList<Atom> atoms)
-    {
-        atomList = atoms;
-    }
-    
     // Return true if two sets of markers are equal, false otherwise
     public boolean equalMarkers(Atom other)
     {
@@ -258,8 +270,8 @@ public class Atom {
     }
     
     // Return true if two atoms have equivalent types, adjoints, and marker 
-    // sets, false otherwise
-    public boolean equals(Atom other)
+    // sets (where an unmarked atom matches any marker set), false otherwise
+    public boolean matches(Atom other)
     {
         return ((this.simpleType.equals(other.simpleType)) && (this.adjoint == other.adjoint)
                && (this.equalMarkers(other)));     
@@ -271,4 +283,64 @@ public class Atom {
         return this.simpleType.equals(other.simpleType);
     }
     
-}
\ No newline at end of file
+    // Return true if the other object is an atom with the same type, adjoint,
+    // generic character, markers, and atom list, false otherwise (an atom 
+    // with no marker list equals one with an empty list)
+    public boolean equals(Object o)
+    {
+        if (o == this)
+            return true;
+        if (!(o instanceof Atom))
+            return false;
+        Atom other = (Atom) o;
+        if ((this.hashCode() != other.hashCode()) || (this.adjoint != other.adjoint)
+                || (this.isGeneric != other.isGeneric) 
+                || (!(this.simpleType.equals(other.simpleType))))
+            return false;
+        int size = (markers == null) ? 0 : markers.size();
+        int otherSize = (other.markers == null) ? 0 : other.markers.size();
+        if (size != otherSize)
+            return false;
+        for (int i = 0; i < size; i++)
+        {
+            Marker m1 = markers.get(i);
+            Marker m2 = other.markers.get(i);
+            if ((m1.getHeading() != m2.getHeading()) || (m1.getType() != m2.getType()))
+                return false;
+        }
+        return (atomList == null) ? (other.atomList == null) : atomList.equals(other.atomList);
+    }
+    
+    // Return a hash code consistent with equals, computed once
+    public int hashCode()
+    {
+        int h = hash;
+        if (h == 0)
+        {
+            h = simpleType.hashCode() * 31 + adjoint;
+            h = h * 2 + (isGeneric ? 1 : 0);
+            if (markers != null)
+            {
+                for (Marker m: markers)
+                {
+                    h = (h * 31 + m.getHeading()) * 31 + m.getType();
+                }
+            }
+            if (atomList != null)
+                h = h * 31 + atomList.hashCode();
+            if (h == 0)
+                h = 1;
+            hash = h;
+        }
+        return h;
+    }
+    
+    // Return a read-only copy of the given list (or null), so that no caller
+    // can change an atom once it is built
+    static <T> List<T> readOnly(List<T> list)
+    {
+        if (list == null)
+            return null;
+        return Collections.unmodifiableList(new ArrayList<T>(list));
+    }
+}
@@ -0,0 +1,266 @@
+/*****************************************************************************
+  * ChartParser.java
+  * Author: Olivia Waring
+  * Decides pregroup reducibility of a sentence over all type assignments at
+  * once, by dynamic programming over spans of atoms (after the polynomial
+  * recognition algorithms of Savateev and Preller)
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.List;
+
+/* Every atom of every candidate type of every word is a position; positions
+ are numbered word by word, type by type, so that position x+1 is the next
+ atom of the same type whenever x is not the last one. Position 0 stands
+ before the sentence and position N+1 after it. For positions x and y, E(x,y)
+ holds if the atoms strictly between x and y can all be linked, for some
+ choice of types of the words strictly between them (the types of the words
+ of x and y being fixed by x and y themselves). If s is the atom right after
+ x, then E(x,y) holds exactly when y is s, or s links with some z for which
+ E(s,z) and E(z,y) hold. Rows of E are bitsets, so the second case is an OR
+ of the rows of those z. A sentence is grammatical if some standalone atom u
+ has E(0,u) and E(u,N+1). */
+public class ChartParser
+{
+    private LambekGrammar g; // representation of a Lambek Grammar
+    private ReductionKernel kernel; // precompiled reduction table
+
+    // Return a new chart parser for the given grammar
+    public ChartParser(LambekGrammar lg)
+    {
+        g = lg;
+        kernel = g.getKernel();
+    }
+
+    // Parse a sentence given the candidate types of each word; the result
+    // holds the chosen type for each word and a witness linkage
+    public ParseResult parse(ArrayList<ArrayList<Type>> words)
+    {
+        int m = words.size();
+        if (m == 0)
+            return ParseResult.failure();
+
+        // Number the positions and record where each one comes from
+        int[][] first = new int[m][]; // first position of each candidate type
+        int n = 0;
+        for (int k = 0; k < m; k++)
+        {
+            first[k] = new int[words.get(k).size()];
+            for (int t = 0; t < first[k].length; t++)
+            {
+                first[k][t] = n + 1;
+                n += words.get(k).get(t).getLength();
+            }
+        }
+        int end = n + 1;
+        int[] posWord = new int[n + 2];
+        int[] posType = new int[n + 2];
+        int[] posAtom = new int[n + 2];
+        Atom[] atoms = new Atom[n + 2];
+        long[] codes = new long[n + 2];
+        int[][] succ = new int[n + 2][];
+        int[] afterLast = {end};
+        for (int k = 0; k < m; k++)
+        {
+            for (int t = 0; t < first[k].length; t++)
+            {
+                List<Atom> typeAtoms = words.get(k).get(t).getAtoms();
+                for (int p = 0; p < typeAtoms.size(); p++)
+                {
+                    int x = first[k][t] + p;
+                    posWord[x] = k;
+                    posType[x] = t;
+                    posAtom[x] = p;
+                    atoms[x] = typeAtoms.get(p);
+                    codes[x] = kernel.encode(atoms[x]);
+                    if (p < typeAtoms.size() - 1)
+                        succ[x] = new int[] {x + 1};
+                    else if (k < m - 1)
+                        succ[x] = first[k + 1];
+                    else
+                        succ[x] = afterLast;
+                }
+            }
+        }
+        succ[0] = first[0];
+        succ[end] = new int[0];
+
+        // Order positions from the end of the sentence backwards, so that
+        // every row needed by a row has already been filled
+        int[] order = new int[n + 1];
+        int o = 0;
+        for (int k = m - 1; k >= 0; k--)
+        {
+            int maxLen = 0;
+            for (Type t: words.get(k))
+            {
+                maxLen = Math.max(maxLen, t.getLength());
+            }
+            for (int p = maxLen - 1; p >= 0; p--)
+            {
+                for (int t = 0; t < first[k].length; t++)
+                {
+                    if (p < words.get(k).get(t).getLength())
+                        order[o++] = first[k][t] + p;
+                }
+            }
+        }
+        order[o] = 0;
+
+        // Fill the rows of E, and record for each atom x the atoms z that
+        // it can link with over a reducible span
+        int rowWords = (n + 2 + 63) >>> 6;
+        long[] e = new long[(n + 2) * rowWords];
+        int[][] closers = new int[n + 2][];
+        int[] found = new int[n + 2];
+        for (int x: order)
+        {
+            int row = x * rowWords;
+            for (int s: succ[x])
+            {
+                e[row + (s >>> 6)] |= 1L << s;
+                if (s == end)
+                    continue;
+                for (int z: closers[s])
+                {
+                    int zRow = z * rowWords;
+                    for (int w = 0; w < rowWords; w++)
+                    {
+                        e[row + w] |= e[zRow + w];
+                    }
+                }
+            }
+            if (x != 0)
+            {
+                int count = 0;
+                for (int z = x + 1; z <= n; z++)
+                {
+                    if (((e[row + (z >>> 6)] & (1L << z)) != 0)
+                            && (links(atoms, codes, x, z)))
+                        found[count++] = z;
+                }
+                closers[x] = new int[count];
+                System.arraycopy(found, 0, closers[x], 0, count);
+            }
+        }
+
+        // Look for a standalone atom that everything else can reduce around
+        int unlinked = -1;
+        for (int u = 1; u <= n; u++)
+        {
+            if ((isStandalone(atoms[u])) && (isSet(e, rowWords, 0, u))
+                    && (isSet(e, rowWords, u, end)))
+            {
+                unlinked = u;
+                break;
+            }
+        }
+        if (unlinked < 0)
+            return ParseResult.failure();
+
+        // Recover the chosen types and a witness linkage
+        int[] chosen = new int[m];
+        int[] partner = new int[n + 2];
+        for (int i = 0; i < partner.length; i++)
+        {
+            partner[i] = -1;
+        }
+        chosen[posWord[unlinked]] = posType[unlinked];
+        Stack pending = new Stack();
+        pending.push(0);
+        pending.push(unlinked);
+        pending.push(unlinked);
+        pending.push(end);
+        while (pending.getHeight() > 0)
+        {
+            int y = pending.pop();
+            int x = pending.pop();
+            boolean adjacent = false;
+            for (int s: succ[x])
+            {
+                if (s == y)
+                    adjacent = true;
+            }
+            if (adjacent)
+                continue;
+            search:
+            for (int s: succ[x])
+            {
+                if (s == end)
+                    continue;
+                for (int z: closers[s])
+                {
+                    if (isSet(e, rowWords, z, y))
+                    {
+                        partner[s] = z;
+                        partner[z] = s;
+                        chosen[posWord[s]] = posType[s];
+                        chosen[posWord[z]] = posType[z];
+                        pending.push(s);
+                        pending.push(z);
+                        pending.push(z);
+                        pending.push(y);
+                        break search;
+                    }
+                }
+            }
+        }
+
+        // Translate positions into atom indices along the chosen path
+        ArrayList<Type> path = new ArrayList<Type>();
+        int[] offset = new int[m];
+        int length = 0;
+        for (int k = 0; k < m; k++)
+        {
+            Type t = words.get(k).get(chosen[k]);
+            path.add(t);
+            offset[k] = length;
+            length += t.getLength();
+        }
+        int[] local = new int[length];
+        for (int i = 0; i < length; i++)
+        {
+            local[i] = -1;
+        }
+        for (int x = 1; x <= n; x++)
+        {
+            if ((partner[x] > 0) && (posType[x] == chosen[posWord[x]]))
+            {
+                int z = partner[x];
+                local[offset[posWord[x]] + posAtom[x]] = offset[posWord[z]] + posAtom[z];
+            }
+        }
+        ArrayList<Link> links = new ArrayList<Link>();
+        for (int j = 0; j < length; j++)
+        {
+            if ((local[j] >= 0) && (local[j] < j))
+                links.add(new Link(local[j], j));
+        }
+        return new ParseResult(true, path, links);
+    }
+
+    // Return true if the atom at position x links with the atom at z
+    private boolean links(Atom[] atoms, long[] codes, int x, int z)
+    {
+        if ((codes[x] == -1) || (codes[z] == -1))
+            return kernel.reduces(atoms[x], atoms[z]);
+        return kernel.reduces(codes[x], codes[z]);
+    }
+
+    // Return true if E(x,y) holds
+    private static boolean isSet(long[] e, int rowWords, int x, int y)
+    {
+        return (e[x * rowWords + (y >>> 6)] & (1L << y)) != 0;
+    }
+
+    // Return true if an atom may be left over at the end of a parse
+    private boolean isStandalone(Atom atom)
+    {
+        for (Atom a: g.getStandalones())
+        {
+            if ((atom.equalTypes(a)) || (g.reductionExists(atom, a)))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,77 @@
+/*****************************************************************************
+  * CorpusChunk.java
+  * Author: Olivia Waring
+  * Represents a run of whole lines of a memory-mapped corpus; each line is
+  * decoded from UTF-8 only when it is asked for, so a chunk may be handed to
+  * a worker thread without first turning its lines into strings
+  *****************************************************************************/
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class CorpusChunk
+{
+    private ByteBuffer bytes; // mapped bytes of the chunk
+    private int index; // ordinal of the chunk within the corpus
+    private int position; // offset of the next line within the chunk
+    private byte[] scratch; // bytes of the line being decoded
+
+    // Return a new chunk over the given bytes, which must end with the end of
+    // a line (or of the corpus)
+    public CorpusChunk(ByteBuffer buffer, int i)
+    {
+        bytes = buffer;
+        index = i;
+        position = 0;
+        scratch = new byte[256];
+    }
+
+    // Return the ordinal of the chunk within the corpus
+    public int getIndex()
+    {
+        return index;
+    }
+
+    // Return true if another line remains, false otherwise
+    public boolean hasNextLine()
+    {
+        return position < bytes.limit();
+    }
+
+    // Return the next line, without its terminator ("\n", "\r\n", or "\r", as
+    // with BufferedReader.readLine)
+    public String nextLine()
+    {
+        int limit = bytes.limit();
+        int start = position;
+        int end = start;
+        while (end < limit)
+        {
+            byte b = bytes.get(end);
+            if ((b == '\n') || (b == '\r'))
+                break;
+            end++;
+        }
+        position = end;
+        if (position < limit)
+        {
+            if ((bytes.get(position) == '\r') && (position + 1 < limit)
+                    && (bytes.get(position + 1) == '\n'))
+                position += 2;
+            else
+                position++;
+        }
+
+        // Decode the line (malformed input is replaced, as by a reader)
+        int length = end - start;
+        if (scratch.length < length)
+        {
+            scratch = new byte[2 * length];
+        }
+        for (int i = 0; i < length; i++)
+        {
+            scratch[i] = bytes.get(start + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
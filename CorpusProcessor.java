@@ -0,0 +1,192 @@
+/*****************************************************************************
+  * CorpusProcessor.java
+  * Author: Olivia Waring
+  * Processes the lines of a corpus on a pool of worker threads, reporting the
+  * results in input order and accumulating the degree of nesting in that same
+  * order, so that the output does not depend on the number of threads
+  *****************************************************************************/
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+public class CorpusProcessor
+{
+    private SentenceProcessor processor; // per-line processing
+    private int threads; // number of worker threads (1 for serial processing)
+    private String poolKind; // "forkjoin", "fixed", or "virtual"
+    private int lineCount; // number of lines processed
+    private double totalNesting; // sum of the degrees of nesting
+
+    // Return a new corpus processor with the given worker configuration
+    public CorpusProcessor(SentenceProcessor sp, int numThreads, String kind)
+    {
+        processor = sp;
+        threads = Math.max(1, numThreads);
+        poolKind = kind;
+        lineCount = 0;
+        totalNesting = 0;
+    }
+
+    // Return number of lines processed
+    public int getLineCount()
+    {
+        return lineCount;
+    }
+
+    // Return corpus-wide sum of the degrees of nesting
+    public double getTotalNesting()
+    {
+        return totalNesting;
+    }
+
+    // Process every line of the reader, printing each report to out
+    public void run(BufferedReader reader, PrintStream out) throws IOException
+    {
+        String line;
+        if (threads == 1)
+        {
+            while ((line = reader.readLine()) != null)
+            {
+                report(processor.process(line), out);
+            }
+            return;
+        }
+
+        // Keep a bounded window of lines in flight, draining the oldest first
+        ExecutorService pool = createPool();
+        ArrayList<Future<SentenceResult>> window = new ArrayList<Future<SentenceResult>>();
+        int oldest = 0;
+        int capacity = threads * 16;
+        try {
+            while ((line = reader.readLine()) != null)
+            {
+                final String sentence = line;
+                window.add(pool.submit(new Callable<SentenceResult>() {
+                    public SentenceResult call()
+                    {
+                        return processor.process(sentence);
+                    }
+                }));
+                if (window.size() - oldest >= capacity)
+                {
+                    report(await(window.get(oldest)), out);
+                    window.set(oldest++, null);
+                }
+                if (oldest == capacity)
+                {
+                    window.subList(0, oldest).clear();
+                    oldest = 0;
+                }
+            }
+            while (oldest < window.size())
+            {
+                report(await(window.get(oldest++)), out);
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Process every line of a memory-mapped corpus, printing each report to
+    // out; each worker takes a whole chunk, decoding its lines as it goes
+    public void run(MappedCorpus corpus, PrintStream out) throws IOException
+    {
+        CorpusChunk chunk;
+        if (threads == 1)
+        {
+            while ((chunk = corpus.nextChunk()) != null)
+            {
+                while (chunk.hasNextLine())
+                {
+                    report(processor.process(chunk.nextLine()), out);
+                }
+            }
+            return;
+        }
+
+        // Keep a bounded window of chunks in flight, draining the oldest first
+        ExecutorService pool = createPool();
+        ArrayDeque<Future<ArrayList<SentenceResult>>> window =
+            new ArrayDeque<Future<ArrayList<SentenceResult>>>();
+        int capacity = threads * 2;
+        try {
+            while ((chunk = corpus.nextChunk()) != null)
+            {
+                final CorpusChunk lines = chunk;
+                window.add(pool.submit(new Callable<ArrayList<SentenceResult>>() {
+                    public ArrayList<SentenceResult> call()
+                    {
+                        ArrayList<SentenceResult> results = new ArrayList<SentenceResult>();
+                        while (lines.hasNextLine())
+                        {
+                            results.add(processor.process(lines.nextLine()));
+                        }
+                        return results;
+                    }
+                }));
+                if (window.size() >= capacity)
+                {
+                    for (SentenceResult result: await(window.poll()))
+                        report(result, out);
+                }
+            }
+            while (!window.isEmpty())
+            {
+                for (SentenceResult result: await(window.poll()))
+                    report(result, out);
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Print a sentence report and add its nesting to the running total
+    private void report(SentenceResult result, PrintStream out)
+    {
+        out.print(result.getOutput());
+        lineCount++;
+        totalNesting += result.getNesting();
+    }
+
+    // Wait for a task to finish and return its result
+    private static <T> T await(Future<T> future)
+    {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ie);
+        }
+        catch (ExecutionException ee) {
+            if (ee.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ee.getCause();
+            throw new RuntimeException(ee.getCause());
+        }
+    }
+
+    // Return a worker pool of the configured kind; virtual threads need a
+    // Java runtime that provides them, and fall back to a fixed pool otherwise
+    private ExecutorService createPool()
+    {
+        if (poolKind.equals("fixed"))
+            return Executors.newFixedThreadPool(threads);
+        if (poolKind.equals("virtual"))
+        {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            }
+            catch (ReflectiveOperationException roe) {
+                System.err.println("Virtual threads unavailable; using a fixed pool.");
+                return Executors.newFixedThreadPool(threads);
+            }
+        }
+        return new ForkJoinPool(threads);
+    }
+}
@@ -0,0 +1,664 @@
+/*****************************************************************************
+  * CrossCheck.java
+  * Author: Olivia Waring
+  * Cross-checks the parsing engines against simpler reference algorithms on
+  * random sentences drawn from a grammar, generated at random unless one is
+  * given, and reports any disagreement
+  *****************************************************************************/
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/* Usage: java CrossCheck [-grammar file | -grammars n] [-entries n]
+ [-sentences n] [-seed n]. The reference algorithms try every type sequence
+ of a sentence in turn, so sentences are kept short. The stack-based parsers
+ are checked against the original algorithm, which reduced Atom objects with
+ PregroupParsing.reduces one type sequence at a time; the expansion of the
+ entries by the metarules against applying every rule to every type in
+ every round. The exit status is 1 if any check fails. */
+public class CrossCheck
+{
+    private static final String[] ATOMS = { "s", "n", "np", "o", "pp", "v", "adj" };
+    private static final String[] METARULES = {
+        "n^1 s^0 a*^-1<a*^-1 n^1 s^0", "np^1 s^0 a*^-1<s^0 a*^-1 np^1",
+        "v^0 a*^-1<a*^-1 v^0", "pp^1 a*^0<a*^0 pp^1", "s^0 o^-1<o^-1 s^0",
+        "a*^1 np^0<np^0 a*^1", "a*^1 s^0<a*^1 s^0 o^-1", "n^0 a*^-1<n^0 adj^-1 a*^-1" };
+    private static final String[] REDUCTIONS = { "n^0<np^0", "np^0<o^0", "v^0<s^0", "pp^0<adj^0" };
+    private static final String SEPARATOR = "**********";
+
+    private static final String RETRY_TYPE = "n_1^0 n_2^1 n^-1 n^0"; // see withRetryWord
+    private static final String STRAY_TYPE = "n_1^0 n_2^1 n^-1 n_3^0"; // see withRetryWord
+
+    private LambekGrammar g; // grammar whose sentences are checked
+    private Random random; // source of the random sentences
+    private ArrayList<Type> retryWord; // types of a word needing cancellation (or null)
+    private int failures; // number of disagreements found
+
+    // Return a new checker of the given grammar's parsers
+    public CrossCheck(LambekGrammar lg, Random r)
+    {
+        g = lg;
+        random = r;
+        retryWord = null;
+        failures = 0;
+    }
+
+    // Return a new checker of the parsers of a grammar written by
+    // writeGrammar, whose sentences may be given a word that parses only
+    // after cancelling atoms (see withRetryWord)
+    public CrossCheck(LambekGrammar lg, Random r, boolean generated)
+    {
+        this(lg, r);
+        if (generated)
+            retryWord = new Entry("retry", new String[] { RETRY_TYPE, STRAY_TYPE }).getTypes();
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        String grammarFile = null; // grammar to check (or null to generate one)
+        int entries = 3000; // number of entries of a generated grammar
+        int sentences = 3000; // number of random sentences per check
+        long seed = 7; // seed of the random grammars and sentences
+        int grammars = 3; // number of grammars to generate
+        for (int i = 0; i < args.length; i++)
+        {
+            if ((args[i].equals("-grammar")) && (i + 1 < args.length))
+                grammarFile = args[++i];
+            else if ((args[i].equals("-entries")) && (i + 1 < args.length))
+                entries = Integer.parseInt(args[++i]);
+            else if ((args[i].equals("-sentences")) && (i + 1 < args.length))
+                sentences = Integer.parseInt(args[++i]);
+            else if ((args[i].equals("-seed")) && (i + 1 < args.length))
+                seed = Long.parseLong(args[++i]);
+            else if ((args[i].equals("-grammars")) && (i + 1 < args.length))
+                grammars = Integer.parseInt(args[++i]);
+        }
+
+        Random random = new Random(seed);
+        int failures = 0;
+        for (int k = 0; k < grammars; k++)
+        {
+            File source;
+            if (grammarFile != null)
+                source = new File(grammarFile);
+            else
+            {
+                source = File.createTempFile("grammar", ".txt");
+                source.deleteOnExit();
+                writeGrammar(source, entries, random);
+            }
+            System.out.println("Grammar " + source.getPath() + ":");
+            LambekGrammar g = new LambekGrammar(source.getPath());
+            CrossCheck check = new CrossCheck(g, random, grammarFile == null);
+            check.checkExpansion(source.getPath(), MetaRuleEngine.DEFAULT_DEPTH);
+            check.checkExpansion(source.getPath(), 1);
+            check.checkChart(sentences);
+            check.checkParallel(sentences / 10);
+            check.checkSearch(sentences);
+            check.checkGraph(sentences);
+            check.checkFilter(sentences);
+            check.checkRedo(sentences);
+            failures += check.getFailures();
+            if (grammarFile != null)
+                break;
+        }
+        if (failures > 0)
+            System.exit(1);
+    }
+
+    // Return the number of disagreements found so far
+    public int getFailures()
+    {
+        return failures;
+    }
+
+    // Write a random grammar with the given number of lexical entries, over
+    // a few atom types with optional markers, to the given file
+    public static void writeGrammar(File file, int size, Random random) throws IOException
+    {
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+        out.println(ATOMS.length);
+        out.println("#" + ATOMS[0]);
+        for (int i = 1; i < ATOMS.length; i++)
+        {
+            out.println(ATOMS[i]);
+        }
+        out.println(SEPARATOR);
+        out.println("1");
+        out.println("number");
+        out.println("#sg");
+        out.println("#pl");
+        out.println(SEPARATOR);
+        out.println("#Verbs:\ns\ned\n#Nouns:\ns\n#Adjectives:\ner\n#Irregulars:\nwent>go");
+        out.println(SEPARATOR);
+        for (int i = 0; i < METARULES.length; i++)
+        {
+            out.println((i + 1) + ":");
+            out.println(METARULES[i]);
+        }
+        out.println(SEPARATOR);
+        for (int i = 0; i < size; i++)
+        {
+            // Lexemes repeat, so that later entries of a lexeme are dropped
+            String line = "w" + random.nextInt(size + 1) + ":";
+            int numTypes = 1 + random.nextInt(3);
+            for (int k = 0; k < numTypes; k++)
+            {
+                int numAtoms = 1 + random.nextInt(4);
+                for (int j = 0; j < numAtoms; j++)
+                {
+                    String[] markers = { "", "", "_1", "_2" };
+                    int[] adjoints = { -1, 0, 0, 1 };
+                    line += ATOMS[random.nextInt(ATOMS.length)]
+                        + markers[random.nextInt(markers.length)]
+                        + "^" + adjoints[random.nextInt(adjoints.length)]
+                        + ((j < numAtoms - 1) ? " " : "");
+                }
+                line += (k < numTypes - 1) ? "," : "";
+            }
+            out.println(line);
+        }
+        out.println(SEPARATOR);
+        for (String rule: REDUCTIONS)
+        {
+            out.println(rule);
+        }
+        out.close();
+    }
+
+    // Return the candidate types of each word of a random sentence of up to
+    // the given number of words
+    private ArrayList<ArrayList<Type>> randomSentence(int maxWords)
+    {
+        return randomSentence(1, maxWords);
+    }
+
+    // Return the candidate types of each word of a random sentence of
+    // between the given numbers of words
+    private ArrayList<ArrayList<Type>> randomSentence(int minWords, int maxWords)
+    {
+        ArrayList<Entry> entries = g.getEntries();
+        ArrayList<ArrayList<Type>> words = new ArrayList<ArrayList<Type>>();
+        int n = minWords + random.nextInt(maxWords - minWords + 1);
+        for (int i = 0; i < n; i++)
+        {
+            words.add(entries.get(random.nextInt(entries.size())).getTypes());
+        }
+        return words;
+    }
+
+    // Return the given words with a word added at the start or the end, if
+    // the grammar was generated: its type holds a pair of n atoms whose
+    // markers clash and a pair that reduces as it is, so that the sentence
+    // parses, if the other words do, only once the first pair is cancelled.
+    // Its second type is the same but for a marker the grammar does not know,
+    // so that sequences with it are reduced on the Atom objects
+    private ArrayList<ArrayList<Type>> withRetryWord(ArrayList<ArrayList<Type>> words)
+    {
+        if (retryWord == null)
+            return words;
+        ArrayList<ArrayList<Type>> longer = new ArrayList<ArrayList<Type>>(words);
+        longer.add(random.nextBoolean() ? 0 : longer.size(), retryWord);
+        return longer;
+    }
+
+    // Compare the entries of the given grammar file, expanded by the given
+    // number of rounds of metarules, with those expanded by applying every
+    // rule to every type of an entry in every round, in rule order, and
+    // adding each new type not equal to one already listed
+    public void checkExpansion(String filename, int depth) throws IOException
+    {
+        LambekGrammar expanded = new LambekGrammar(filename, depth);
+        ArrayList<MetaRule> rules = expanded.getMetaRules();
+        MetaRuleEngine engine = new MetaRuleEngine(rules, depth);
+        ArrayList<Entry> entries = readEntries(filename);
+        int types = 0;
+        int before = failures;
+        for (Entry e: entries)
+        {
+            ArrayList<Type> expected = new ArrayList<Type>(e.getTypes());
+            for (int round = 0; (depth == 0) || (round < depth); round++)
+            {
+                ArrayList<Type> moreTypes = new ArrayList<Type>();
+                ArrayList<Type> listed = new ArrayList<Type>(expected);
+                for (Type t: expected)
+                {
+                    for (MetaRule m: rules)
+                    {
+                        Type derived = engine.apply(m, t);
+                        if ((derived != null) && (!(listed(listed, derived))))
+                        {
+                            moreTypes.add(derived);
+                            listed.add(derived);
+                        }
+                    }
+                }
+                if (moreTypes.size() == 0)
+                    break;
+                expected.addAll(moreTypes);
+            }
+            if (!(sameTypes(expected, expanded.lookup(e.getLex()).getTypes())))
+                failures++;
+            types += expected.size();
+        }
+        System.out.println("Metarule expansion to depth " + depth + " vs every rule on every type: "
+                           + entries.size() + " entries, " + types + " types, "
+                           + (failures - before) + " disagreements");
+    }
+
+    // Return the lexical entries of a grammar file as they are written, the
+    // first entry of each lexeme only
+    private static ArrayList<Entry> readEntries(String filename) throws IOException
+    {
+        ArrayList<Entry> entries = new ArrayList<Entry>();
+        HashSet<String> seen = new HashSet<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(filename));
+        String line;
+        int section = 1;
+        while ((line = reader.readLine()) != null)
+        {
+            if (line.equals(SEPARATOR))
+                section++;
+            else if ((section == 5) && (line.length() > 0))
+            {
+                String[] tokens = line.split("[:]+");
+                if (seen.add(tokens[0]))
+                    entries.add(new Entry(tokens[0], tokens[1].split("[,]+")));
+            }
+        }
+        reader.close();
+        return entries;
+    }
+
+    // Return true if a type matching the given one is in the list
+    private static boolean listed(ArrayList<Type> types, Type t)
+    {
+        for (Type q: types)
+        {
+            if (q.matches(t))
+                return true;
+        }
+        return false;
+    }
+
+    // Return true if the lists hold equal types in the same order
+    private static boolean sameTypes(ArrayList<Type> types1, ArrayList<Type> types2)
+    {
+        if (types1.size() != types2.size())
+            return false;
+        for (int i = 0; i < types1.size(); i++)
+        {
+            if (!(types1.get(i).equals(types2.get(i))))
+                return false;
+        }
+        return true;
+    }
+
+    // Compare the chart parser with a brute-force search for a planar
+    // linkage of each type sequence, and check each witness it returns
+    public void checkChart(int sentences)
+    {
+        ChartParser chart = new ChartParser(g);
+        int grammatical = 0;
+        int before = failures;
+        for (int it = 0; it < sentences; it++)
+        {
+            ArrayList<ArrayList<Type>> words = randomSentence(5);
+            boolean expected = false;
+            PathIterator paths = new PathIterator(words);
+            while ((!expected) && (paths.hasNext()))
+            {
+                expected = reducible(PregroupParsing.typesToAtoms(paths.next()));
+            }
+            ParseResult result = chart.parse(words);
+            if (result.isGrammatical() != expected)
+                failures++;
+            else if ((expected) && (!(isWitness(words, result))))
+                failures++;
+            if (expected)
+                grammatical++;
+        }
+        System.out.println("Chart vs brute force: " + sentences + " sentences, "
+                           + grammatical + " grammatical, "
+                           + (failures - before) + " disagreements");
+    }
+
+    // Compare the parallel search of the type sequences of a sentence with
+    // the serial one, on sentences with enough sequences to be split among
+    // several threads
+    public void checkParallel(int sentences)
+    {
+        PregroupParser serial = new PregroupParser(g);
+        PregroupParser parallel = new PregroupParser(g);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        int split = 0;
+        int before = failures;
+        for (int it = 0; it < sentences; it++)
+        {
+            ArrayList<ArrayList<Type>> words = randomSentence(6, 10);
+            if (PathIterator.countPaths(words) > 16)
+                split++; // more sequences than the smallest range searched alone
+            if (!(sameResult(serial.parse(words), parallel.parse(words, pool))))
+                failures++;
+        }
+        pool.shutdown();
+        System.out.println("Parallel vs serial search: " + sentences + " sentences, "
+                           + split + " split, " + (failures - before) + " disagreements");
+    }
+
+    // Compare the depth-first search of the type sequences of a sentence with
+    // the original algorithm run on each type sequence in turn
+    public void checkSearch(int sentences)
+    {
+        ParseContext context = new ParseContext(g);
+        int grammatical = 0;
+        int retried = 0;
+        int before = failures;
+        for (int it = 0; it < sentences; it++)
+        {
+            ArrayList<ArrayList<Type>> words = randomSentence(6);
+            if (it % 2 == 1)
+                words = withRetryWord(words);
+            ParseResult expected = referenceSearch(words);
+            if (!(sameResult(expected, context.search(words, 0, Long.MAX_VALUE, null))))
+                failures++;
+            if (expected.isGrammatical())
+                grammatical++;
+            if (expected.isRetry())
+                retried++;
+        }
+        System.out.println("Depth-first search vs original per-sequence parse: " + sentences
+                           + " sentences, " + grammatical + " grammatical, " + retried
+                           + " on the second try, " + (failures - before) + " disagreements");
+    }
+
+    // Compare the graph-structured stack parser with the original algorithm
+    // run on each type sequence in turn: first the first sequence that parses
+    // on the first try, failing that the first that parses after cancelling
+    // atoms (see GraphStackParser)
+    public void checkGraph(int sentences)
+    {
+        GraphStackParser graph = new GraphStackParser(g, new PregroupParser(g));
+        int grammatical = 0;
+        int before = failures;
+        for (int it = 0; it < sentences; it++)
+        {
+            ArrayList<ArrayList<Type>> words = randomSentence(6);
+            if (it % 2 == 1)
+                words = withRetryWord(words);
+            ParseResult expected = ParseResult.failure();
+            PathIterator paths = new PathIterator(words);
+            while ((!(expected.isGrammatical())) && (paths.hasNext()))
+            {
+                ArrayList<Type> path = paths.next();
+                ArrayList<Link> links = referenceReduce(PregroupParsing.typesToAtoms(path));
+                if (links != null)
+                    expected = new ParseResult(true, path, links, false);
+            }
+            if (!(expected.isGrammatical()))
+                expected = referenceSearch(words);
+            if (!(sameResult(expected, graph.parse(words))))
+                failures++;
+            if (expected.isGrammatical())
+                grammatical++;
+        }
+        System.out.println("Graph-structured stack vs original per-sequence parse: " + sentences
+                           + " sentences, " + grammatical + " grammatical, "
+                           + (failures - before) + " disagreements");
+    }
+
+    // Compare the parse of each sentence after filtering its candidate types
+    // with that of all of them
+    public void checkFilter(int sentences)
+    {
+        PregroupParser parser = new PregroupParser(g);
+        TypeFilter filter = new TypeFilter(g);
+        int filtered = 0;
+        int grammatical = 0;
+        int before = failures;
+        for (int it = 0; it < sentences; it++)
+        {
+            ArrayList<ArrayList<Type>> words = randomSentence(8);
+            if (it % 2 == 1)
+                words = withRetryWord(words);
+            ArrayList<ArrayList<Type>> kept = filter.filter(words);
+            if (PathIterator.countPaths(kept) < PathIterator.countPaths(words))
+                filtered++;
+            ParseResult expected = parser.parse(words);
+            if (!(sameResult(expected, parser.parse(kept))))
+                failures++;
+            if (expected.isGrammatical())
+                grammatical++;
+        }
+        System.out.println("Filtered vs unfiltered types: " + sentences + " sentences, "
+                           + filtered + " filtered, " + grammatical + " grammatical, "
+                           + (failures - before) + " disagreements");
+    }
+
+    // Compare the cancellation retry with the original one, cancelling pairs
+    // of atoms of every offending type in turn rather than of the first only;
+    // wherever the original retry succeeds, the new one must find the same
+    // links, and it may succeed where the original did not
+    public void checkRedo(int sentences)
+    {
+        ParseContext context = new ParseContext(g);
+        int retried = 0;
+        int original = 0;
+        int before = failures;
+        for (int it = 0; it < sentences; it++)
+        {
+            ArrayList<ArrayList<Type>> words = randomSentence(6);
+            if (it % 2 == 1)
+                words = withRetryWord(words);
+            PathIterator paths = new PathIterator(words);
+            while (paths.hasNext())
+            {
+                ArrayList<Type> path = paths.next();
+                if ((context.parse(path)) || (!(context.isSpecialCase())))
+                    continue;
+                boolean parsed = context.redo();
+                ArrayList<Atom> atoms = PregroupParsing.typesToAtoms(path);
+                ArrayList<Link> expected = referenceRetry(atoms, true);
+                ArrayList<Link> first = referenceRetry(atoms, false);
+                if ((parsed != (expected != null))
+                        || ((parsed) && (!(context.getLinks().toString().equals(expected.toString())))))
+                    failures++;
+                if ((first != null) && (!(first.toString().equals(String.valueOf(expected)))))
+                    failures++;
+                if (parsed)
+                    retried++;
+                if (first != null)
+                    original++;
+            }
+        }
+        System.out.println("Cancellation retry vs original: " + sentences + " sentences, "
+                           + retried + " sequences parsed on the second try, " + original
+                           + " by the original, " + (failures - before) + " disagreements");
+    }
+
+    // Return true if two parse results agree in outcome, type sequence,
+    // links, and whether atoms were cancelled
+    private static boolean sameResult(ParseResult r1, ParseResult r2)
+    {
+        return (r1.isGrammatical() == r2.isGrammatical())
+            && (r1.isRetry() == r2.isRetry())
+            && (r1.getPath().equals(r2.getPath()))
+            && (r1.getLinks().toString().equals(r2.getLinks().toString()));
+    }
+
+    // Return the result of the original algorithm on a sentence: the first
+    // type sequence whose atoms reduce, as they are or after cancelling a
+    // pair of atoms (see referenceRetry)
+    private ParseResult referenceSearch(ArrayList<ArrayList<Type>> words)
+    {
+        PathIterator paths = new PathIterator(words);
+        while (paths.hasNext())
+        {
+            ArrayList<Type> path = paths.next();
+            ArrayList<Atom> atoms = PregroupParsing.typesToAtoms(path);
+            ArrayList<Link> links = referenceReduce(atoms);
+            if (links != null)
+                return new ParseResult(true, path, links, false);
+            links = referenceRetry(atoms, true);
+            if (links != null)
+                return new ParseResult(true, path, links, true);
+        }
+        return ParseResult.failure();
+    }
+
+    // Return the links made by reducing the atoms against a stack with
+    // PregroupParsing.reduces, if they leave exactly one atom unlinked, which
+    // is standalone; null otherwise
+    private ArrayList<Link> referenceReduce(ArrayList<Atom> atoms)
+    {
+        ArrayList<Link> links = new ArrayList<Link>();
+        boolean[] linked = new boolean[atoms.size()];
+        Stack stack = new Stack();
+        for (int i = 0; i < atoms.size(); i++)
+        {
+            int top = stack.top();
+            if ((top >= 0) && (PregroupParsing.reduces(atoms.get(top), atoms.get(i), g)))
+            {
+                stack.pop();
+                links.add(new Link(top, i));
+                linked[top] = true;
+                linked[i] = true;
+            }
+            else
+            {
+                stack.push(i);
+            }
+        }
+        int unlinked = -1;
+        for (int i = 0; i < linked.length; i++)
+        {
+            if (!linked[i])
+            {
+                if (unlinked >= 0)
+                    return null;
+                unlinked = i;
+            }
+        }
+        if ((unlinked < 0) || (!(isStandalone(atoms.get(unlinked)))))
+            return null;
+        return links;
+    }
+
+    // Return the links found by the original cancellation retry: if some atom
+    // type occurs 4 or more times (taking reduction rules into account), each
+    // pair of atoms of that type, in order of position, is replaced by dummy
+    // atoms in turn until the atoms reduce. The offending types are tried in
+    // turn if every is true, the first only otherwise; null if none reduces
+    private ArrayList<Link> referenceRetry(ArrayList<Atom> atoms, boolean every)
+    {
+        Atom dummy = g.getDummy();
+        for (Atom offending: g.getAtomList())
+        {
+            ArrayList<Integer> positions = new ArrayList<Integer>();
+            for (int i = 0; i < atoms.size(); i++)
+            {
+                if ((atoms.get(i).equalTypes(offending))
+                        || (g.reductionExists(atoms.get(i), offending)))
+                    positions.add(i);
+            }
+            if (positions.size() < 4)
+                continue;
+            for (int a = 0; a < positions.size(); a++)
+            {
+                for (int b = a + 1; b < positions.size(); b++)
+                {
+                    ArrayList<Atom> cancelled = new ArrayList<Atom>(atoms);
+                    for (int p: new int[] { positions.get(a), positions.get(b) })
+                    {
+                        cancelled.set(p, new Atom(dummy.getSimpleType(), atoms.get(p).getAdjoint()));
+                    }
+                    ArrayList<Link> links = referenceReduce(cancelled);
+                    if (links != null)
+                        return links;
+                }
+            }
+            if (!every)
+                break;
+        }
+        return null;
+    }
+
+    // Return true if the atoms have a planar linkage leaving a single
+    // standalone atom unlinked, by trying every linkage of every interval
+    private boolean reducible(ArrayList<Atom> atoms)
+    {
+        int n = atoms.size();
+        boolean[][] empty = new boolean[n + 1][n + 1]; // atoms i to j-1 all link
+        for (int i = 0; i <= n; i++)
+        {
+            empty[i][i] = true;
+        }
+        for (int span = 2; span <= n; span += 2)
+        {
+            for (int i = 0; i + span <= n; i++)
+            {
+                int j = i + span;
+                for (int k = i + 1; (k < j) && (!empty[i][j]); k += 2)
+                {
+                    empty[i][j] = g.getKernel().reduces(atoms.get(i), atoms.get(k))
+                        && empty[i + 1][k] && empty[k + 1][j];
+                }
+            }
+        }
+        for (int u = 0; u < n; u++)
+        {
+            if ((empty[0][u]) && (empty[u + 1][n]) && (isStandalone(atoms.get(u))))
+                return true;
+        }
+        return false;
+    }
+
+    // Return true if the atom is, or reduces to, a standalone type
+    private boolean isStandalone(Atom atom)
+    {
+        for (Atom s: g.getStandalones())
+        {
+            if ((atom.equalTypes(s)) || (g.reductionExists(atom, s)))
+                return true;
+        }
+        return false;
+    }
+
+    // Return true if a parse result picks one candidate type for each word,
+    // and its links are reductions that nest, leaving exactly one atom
+    private boolean isWitness(ArrayList<ArrayList<Type>> words, ParseResult result)
+    {
+        List<Type> path = result.getPath();
+        if (path.size() != words.size())
+            return false;
+        for (int i = 0; i < path.size(); i++)
+        {
+            if (!(words.get(i).contains(path.get(i))))
+                return false;
+        }
+        ArrayList<Atom> atoms = PregroupParsing.typesToAtoms(new ArrayList<Type>(path));
+        int[] partner = new int[atoms.size()];
+        Arrays.fill(partner, -1);
+        for (Link l: result.getLinks())
+        {
+            if (!(g.getKernel().reduces(atoms.get(l.getNode1()), atoms.get(l.getNode2()))))
+                return false;
+            partner[l.getNode1()] = l.getNode2();
+            partner[l.getNode2()] = l.getNode1();
+        }
+        int unlinked = 0;
+        for (int i = 0; i < partner.length; i++)
+        {
+            if (partner[i] < 0)
+                unlinked++;
+            for (int j = i + 1; j < partner[i]; j++)
+            {
+                // Links must not cross
+                if ((partner[j] < i) || (partner[j] > partner[i]))
+                    return false;
+            }
+        }
+        return unlinked == 1;
+    }
+}
@@ -11,6 +11,8 @@ import java.lang.Integer;
 public class Entry implements Comparable<Entry> {
     private String lexeme; // lexical item
     private ArrayList<Type> types; // list of possible types
+    private volatile boolean expanded; // whether metarules have been applied
+                                       // (for lazily expanded grammars)
     
     // Return a new entry
     public Entry(String word, String[] tokens)
@@ -55,6 +57,85 @@ public class Entry implements Comparable<Entry> {
         }
     }
     
+    // Return a new entry with the given list of possible types
+    public Entry(String word, ArrayList<Type> typeList)
+    {
+        lexeme = word;
+        types = typeList;
+    }
+    
+    // Return the entry described by a dictionary line of the form
+    // "lexeme:type,type,...", where each type is a sequence of atoms separated
+    // by spaces; throw an IllegalArgumentException describing the first 
+    // problem if the line is malformed
+    public static Entry parse(String line)
+    {
+        int colon = line.indexOf(':');
+        if (colon <= 0)
+            throw new IllegalArgumentException("expected lexeme:types");
+        String word = line.substring(0, colon);
+        int start = colon;
+        while ((start < line.length()) && (line.charAt(start) == ':'))
+        {
+            start++;
+        }
+        if (line.indexOf(':', start) >= 0)
+            throw new IllegalArgumentException("more than one ':'");
+        ArrayList<Type> typeList = new ArrayList<Type>();
+        for (String token: split(line.substring(start), ','))
+        {
+            ArrayList<Atom> atomList = new ArrayList<Atom>();
+            for (String atom: split(token, ' '))
+            {
+                atomList.add(parseAtom(atom));
+            }
+            if (atomList.size() > 0)
+                typeList.add(new Type(atomList));
+        }
+        if (typeList.size() == 0)
+            throw new IllegalArgumentException("no types for " + word);
+        return new Entry(word, typeList);
+    }
+    
+    // Return the atom described by a string of the form "type_m_m^adjoint"
+    private static Atom parseAtom(String atom)
+    {
+        int caret = atom.indexOf('^');
+        if ((caret < 0) || (atom.indexOf('^', caret + 1) >= 0))
+            throw new IllegalArgumentException("incorrect atom format: " + atom);
+        ArrayList<String> parts = split(atom.substring(0, caret), '_');
+        if (parts.size() == 0)
+            throw new IllegalArgumentException("incorrect atom format: " + atom);
+        ArrayList<Marker> markers = new ArrayList<Marker>();
+        try {
+            for (int k = 1; k < parts.size(); k++)
+            {
+                markers.add(new Marker(k-1, Integer.parseInt(parts.get(k))));
+            }
+            return new Atom(parts.get(0), Integer.parseInt(atom.substring(caret + 1)), markers);
+        }
+        catch(NumberFormatException nfe) {
+            throw new IllegalArgumentException("incorrect atom format: " + atom);
+        }
+    }
+    
+    // Return the nonempty pieces of a string between runs of a delimiter
+    private static ArrayList<String> split(String s, char delim)
+    {
+        ArrayList<String> pieces = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i <= s.length(); i++)
+        {
+            if ((i == s.length()) || (s.charAt(i) == delim))
+            {
+                if (i > start)
+                    pieces.add(s.substring(start, i));
+                start = i + 1;
+            }
+        }
+        return pieces;
+    }
+    
     // Return string representation of entry
     public String toString()
     {
@@ -90,6 +171,18 @@ public class Entry implements Comparable<Entry> {
         return;
     }
     
+    // Return true if the metarules have been applied to the entry's types
+    public boolean isExpanded()
+    {
+        return expanded;
+    }
+    
+    // Record that the metarules have been applied to the entry's types
+    public void markExpanded()
+    {
+        expanded = true;
+    }
+    
     // Compare the key values of two entries
     public int compareTo(Entry other)
     {
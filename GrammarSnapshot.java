@@ -0,0 +1,458 @@
+/*****************************************************************************
+  * GrammarSnapshot.java
+  * Author: Olivia Waring
+  * Writes a fully expanded Lambek Grammar to a versioned binary file, and
+  * reads it back through a memory map, so that the text specification need
+  * not be parsed (nor its metarules expanded) on every run
+  *****************************************************************************/
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/* A snapshot is a header followed by a payload. The header holds a magic
+ * number, the format version, the number of rounds of metarule expansion,
+ * the length, modification time, and CRC-32 of the text file the snapshot
+ * was compiled from, and the length and CRC-32 of the payload. A snapshot
+ * is stale when the text file's length differs, or when its modification
+ * time differs and its contents do too; stale, corrupt, or foreign
+ * snapshots (or those expanded for another number of rounds) are ignored,
+ * never trusted.
+ *
+ * The payload begins with a table of every distinct string, which everything
+ * after it refers to by index: the atom types and standalones, the markers,
+ * the suffixes and irregular forms, the metarules, the lexical entries with
+ * all the types their metarules derive, the reduction rules, and the
+ * reduction table as rows of bits. What is cheap to derive from these (atom
+ * pool, lexicon, reduction kernel, morphological automata) is rebuilt by
+ * LambekGrammar.prepare() exactly as after reading the text. */
+
+public class GrammarSnapshot
+{
+    private static final int MAGIC = 0x4C47534E; // "LGSN"
+    private static final int VERSION = 3; // bump whenever the layout or the
+                                          // expansion semantics change
+    private static final int HEADER_BYTES = 48; // magic through payload CRC
+
+    // Return the snapshot file kept alongside the given grammar file
+    public static File snapshotFor(File source)
+    {
+        return new File(source.getPath() + ".lgs");
+    }
+
+    // Return the length, modification time, and CRC-32 of a grammar file, or
+    // null if it cannot be read
+    public static long[] stamp(File source)
+    {
+        try {
+            byte[] bytes = Files.readAllBytes(source.toPath());
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            return new long[] { bytes.length, source.lastModified(), crc.getValue() };
+        }
+        catch(IOException ioe) {
+            return null;
+        }
+    }
+
+    // Write the grammar to the snapshot file, recording the stamp of the text
+    // file it was read from; the file is replaced atomically, so readers never
+    // see a partial snapshot
+    public static void write(LambekGrammar g, long[] stamp, File target) throws IOException
+    {
+        Writer w = new Writer();
+        w.writeGrammar(g);
+        byte[] payload = w.toPayload();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        File temp = new File(target.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(g.metaruleDepth);
+            out.writeLong(stamp[0]);
+            out.writeLong(stamp[1]);
+            out.writeLong(stamp[2]);
+            out.writeInt(payload.length);
+            out.writeLong(crc.getValue());
+            out.write(payload);
+        }
+        finally {
+            out.close();
+        }
+        try {
+            Files.move(temp.toPath(), target.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(AtomicMoveNotSupportedException amnse) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Return the grammar stored in the snapshot file, expanded by the given
+    // number of rounds of metarules, or null if there is no such snapshot, or
+    // if it is stale, corrupt, or of another format version
+    public static LambekGrammar read(File source, File snapshot, int depth)
+    {
+        if ((!(source.isFile())) || (!(snapshot.isFile())))
+            return null;
+        try {
+            FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ);
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            finally {
+                channel.close();
+            }
+            if ((buffer.remaining() < HEADER_BYTES) || (buffer.getInt() != MAGIC)
+                    || (buffer.getInt() != VERSION) || (buffer.getInt() != depth))
+                return null;
+            long length = buffer.getLong();
+            long modified = buffer.getLong();
+            long sourceCrc = buffer.getLong();
+            int payloadLength = buffer.getInt();
+            long payloadCrc = buffer.getLong();
+            if ((length != source.length()) || (payloadLength != buffer.remaining()))
+                return null;
+            if (modified != source.lastModified())
+            {
+                long[] current = stamp(source);
+                if ((current == null) || (current[2] != sourceCrc))
+                    return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if (crc.getValue() != payloadCrc)
+                return null;
+            return new Reader(buffer).readGrammar(source, depth);
+        }
+        catch(IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Serializes the parts of a grammar into a payload, collecting the string
+    // table as it goes
+    private static class Writer
+    {
+        private HashMap<String, Integer> stringIds = new HashMap<String, Integer>();
+        private ArrayList<String> strings = new ArrayList<String>();
+        private ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private DataOutputStream out = new DataOutputStream(body);
+
+        // Write every part of the grammar, in the order the reader expects
+        void writeGrammar(LambekGrammar g) throws IOException
+        {
+            Atom[] atomList = g.atomList;
+            out.writeInt(atomList.length);
+            for (Atom a: atomList)
+            {
+                writeString(a.getSimpleType());
+            }
+            writeAtoms(g.standalones);
+            out.writeInt(g.numMarkers);
+            writeStringLists(g.markerList);
+            writeStringLists(g.irregulars);
+            writeStrings(g.verbalSuffixes);
+            writeStrings(g.nounSuffixes);
+            writeStrings(g.adjectiveSuffixes);
+            out.writeInt(g.metarules.size());
+            for (MetaRule r: g.metarules)
+            {
+                out.writeInt(r.getIndex());
+                writeType(r.getType1());
+                writeType(r.getType2());
+            }
+            out.writeInt(g.entries.size());
+            for (Entry e: g.entries)
+            {
+                writeString(e.getLex());
+                out.writeInt(e.getTypes().size());
+                for (Type t: e.getTypes())
+                {
+                    writeType(t);
+                }
+            }
+            out.writeInt(g.reductionrules.size());
+            for (ReductionRule r: g.reductionrules)
+            {
+                writeAtom(r.getAtom1());
+                writeAtom(r.getAtom2());
+            }
+            boolean[][] mappings = g.mappings;
+            out.writeInt(mappings.length);
+            for (boolean[] row: mappings)
+            {
+                for (int j = 0; j < row.length; j += 64)
+                {
+                    long bits = 0;
+                    for (int k = j; (k < row.length) && (k < j + 64); k++)
+                    {
+                        if (row[k])
+                            bits |= 1L << (k - j);
+                    }
+                    out.writeLong(bits);
+                }
+            }
+        }
+
+        // Return the string table followed by everything written so far
+        byte[] toPayload() throws IOException
+        {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(body.size() + 16 * strings.size());
+            DataOutputStream table = new DataOutputStream(payload);
+            table.writeInt(strings.size());
+            for (String s: strings)
+            {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                table.writeInt(bytes.length);
+                table.write(bytes);
+            }
+            table.flush();
+            body.writeTo(payload);
+            return payload.toByteArray();
+        }
+
+        private void writeString(String s) throws IOException
+        {
+            Integer id = stringIds.get(s);
+            if (id == null)
+            {
+                id = strings.size();
+                strings.add(s);
+                stringIds.put(s, id);
+            }
+            out.writeInt(id);
+        }
+
+        private void writeStrings(ArrayList<String> list) throws IOException
+        {
+            out.writeInt(list.size());
+            for (String s: list)
+            {
+                writeString(s);
+            }
+        }
+
+        // Lists of lists may be missing (-1) if their section was absent
+        private void writeStringLists(ArrayList<ArrayList<String>> lists) throws IOException
+        {
+            if (lists == null)
+            {
+                out.writeInt(-1);
+                return;
+            }
+            out.writeInt(lists.size());
+            for (ArrayList<String> list: lists)
+            {
+                writeStrings(list);
+            }
+        }
+
+        private void writeType(Type t) throws IOException
+        {
+            writeAtoms(t.getAtoms());
+        }
+
+        private void writeAtoms(List<Atom> atoms) throws IOException
+        {
+            if (atoms == null)
+            {
+                out.writeInt(-1);
+                return;
+            }
+            out.writeInt(atoms.size());
+            for (Atom a: atoms)
+            {
+                writeAtom(a);
+            }
+        }
+
+        // An atom's marker list and generic atom list are each written as a
+        // count (-1 for none) followed by their members
+        private void writeAtom(Atom a) throws IOException
+        {
+            writeString(a.getSimpleType());
+            out.writeInt(a.getAdjoint());
+            out.writeBoolean(a.isGeneric());
+            out.writeInt(a.getId());
+            List<Marker> markers = a.getMarkers();
+            if (markers == null)
+                out.writeInt(-1);
+            else
+            {
+                out.writeInt(markers.size());
+                for (Marker m: markers)
+                {
+                    out.writeInt(m.getHeading());
+                    out.writeInt(m.getType());
+                }
+            }
+            writeAtoms(a.getAtoms());
+        }
+    }
+
+    // Rebuilds the parts of a grammar from a mapped payload
+    private static class Reader
+    {
+        private ByteBuffer in;
+        private String[] strings;
+
+        Reader(ByteBuffer buffer)
+        {
+            in = buffer;
+        }
+
+        // Return the grammar stored in the payload, prepared for parsing
+        LambekGrammar readGrammar(File source, int depth)
+        {
+            strings = new String[in.getInt()];
+            for (int i = 0; i < strings.length; i++)
+            {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            LambekGrammar g = new LambekGrammar(source);
+            g.metaruleDepth = depth;
+            int numTypes = in.getInt();
+            g.atomList = new Atom[numTypes];
+            for (int i = 0; i < numTypes; i++)
+            {
+                Atom a = new Atom(readString(), 0);
+                a.setId(i);
+                g.atomIds.put(a.getSimpleType(), i);
+                g.atomList[i] = a;
+            }
+            g.dummyAtom.setId(numTypes);
+            g.atomIds.put(g.dummyAtom.getSimpleType(), numTypes);
+            g.standalones = readAtoms();
+            g.numMarkers = in.getInt();
+            g.markerList = readStringLists();
+            g.irregulars = readStringLists();
+            g.verbalSuffixes = readStrings();
+            g.nounSuffixes = readStrings();
+            g.adjectiveSuffixes = readStrings();
+            int numRules = in.getInt();
+            for (int i = 0; i < numRules; i++)
+            {
+                int index = in.getInt();
+                Type t1 = readType();
+                g.metarules.add(new MetaRule(index, t1, readType()));
+            }
+            int numEntries = in.getInt();
+            g.entries.ensureCapacity(numEntries);
+            for (int i = 0; i < numEntries; i++)
+            {
+                String lexeme = readString();
+                int count = in.getInt();
+                ArrayList<Type> types = new ArrayList<Type>(count);
+                for (int j = 0; j < count; j++)
+                {
+                    types.add(g.interner.intern(readType()));
+                }
+                g.entries.add(new Entry(lexeme, types));
+            }
+            numRules = in.getInt();
+            for (int i = 0; i < numRules; i++)
+            {
+                Atom a1 = readAtom();
+                g.reductionrules.add(new ReductionRule(a1, readAtom()));
+            }
+            int size = in.getInt();
+            g.mappings = new boolean[size][size];
+            for (int i = 0; i < size; i++)
+            {
+                for (int j = 0; j < size; j += 64)
+                {
+                    long bits = in.getLong();
+                    for (int k = j; (k < size) && (k < j + 64); k++)
+                    {
+                        g.mappings[i][k] = (bits & (1L << (k - j))) != 0;
+                    }
+                }
+            }
+            g.prepare();
+            return g;
+        }
+
+        private String readString()
+        {
+            return strings[in.getInt()];
+        }
+
+        private ArrayList<String> readStrings()
+        {
+            int count = in.getInt();
+            ArrayList<String> list = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++)
+            {
+                list.add(readString());
+            }
+            return list;
+        }
+
+        private ArrayList<ArrayList<String>> readStringLists()
+        {
+            int count = in.getInt();
+            if (count < 0)
+                return null;
+            ArrayList<ArrayList<String>> lists = new ArrayList<ArrayList<String>>(count);
+            for (int i = 0; i < count; i++)
+            {
+                lists.add(readStrings());
+            }
+            return lists;
+        }
+
+        private Type readType()
+        {
+            return new Type(readAtoms());
+        }
+
+        private ArrayList<Atom> readAtoms()
+        {
+            int count = in.getInt();
+            if (count < 0)
+                return null;
+            ArrayList<Atom> atoms = new ArrayList<Atom>(count);
+            for (int i = 0; i < count; i++)
+            {
+                atoms.add(readAtom());
+            }
+            return atoms;
+        }
+
+        private Atom readAtom()
+        {
+            String simpleType = readString();
+            int adjoint = in.getInt();
+            boolean generic = in.get() != 0;
+            int id = in.getInt();
+            int count = in.getInt();
+            ArrayList<Marker> markers = null;
+            if (count >= 0)
+            {
+                markers = new ArrayList<Marker>(count);
+                for (int i = 0; i < count; i++)
+                {
+                    int heading = in.getInt();
+                    markers.add(new Marker(heading, in.getInt()));
+                }
+            }
+            Atom a = new Atom(simpleType, adjoint, generic, markers, readAtoms());
+            a.setId(id);
+            return a;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*****************************************************************************
+  * GraphStack.java
+  * Author: Olivia Waring
+  * Represents the stacks of pending atoms reachable after each word of a
+  * sentence as one graph-structured stack: stacks are hash-consed, so stacks
+  * with the same atoms are the same node, and each word keeps only the
+  * distinct stacks reachable after it
+  *****************************************************************************/
+
+import java.util.Arrays;
+
+public class GraphStack
+{
+    public static final int ROOT = 0; // node of the empty stack
+
+    private long[] code; // packed atom on top of each stack node
+    private int[] parent; // node of the stack below the top atom (or -1)
+    private int[] depth; // number of atoms on each stack
+    private int[] seen; // last level at which each node was reached
+    private int nodes; // number of stack nodes
+    private int[] table; // hash table of nodes (node + 1, or 0 if empty)
+    private int[] configNode; // stack reached by each configuration
+    private int[] configPrev; // configuration of the previous word
+    private int[] configChoice; // type chosen for the word to get here
+    private int configs; // number of configurations
+
+    // Return a new, empty graph-structured stack
+    public GraphStack()
+    {
+        code = new long[64];
+        parent = new int[64];
+        depth = new int[64];
+        seen = new int[64];
+        table = new int[128];
+        configNode = new int[64];
+        configPrev = new int[64];
+        configChoice = new int[64];
+        reset();
+    }
+
+    // Forget every stack and configuration except the empty stack
+    public void reset()
+    {
+        Arrays.fill(table, 0);
+        code[ROOT] = -1;
+        parent[ROOT] = -1;
+        depth[ROOT] = 0;
+        seen[ROOT] = -1;
+        nodes = 1;
+        configs = 0;
+    }
+
+    // Return the node of the stack with the given atom on top of the given
+    // stack, creating it if it does not exist yet
+    public int push(long atom, int below)
+    {
+        int mask = table.length - 1;
+        int slot = hash(atom, below) & mask;
+        while (table[slot] != 0)
+        {
+            int n = table[slot] - 1;
+            if ((code[n] == atom) && (parent[n] == below))
+                return n;
+            slot = (slot + 1) & mask;
+        }
+        if (nodes == code.length)
+        {
+            int capacity = 2 * nodes;
+            code = Arrays.copyOf(code, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            depth = Arrays.copyOf(depth, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+        }
+        int n = nodes++;
+        code[n] = atom;
+        parent[n] = below;
+        depth[n] = depth[below] + 1;
+        seen[n] = -1;
+        table[slot] = n + 1;
+        if (2 * nodes > table.length)
+            rehash();
+        return n;
+    }
+
+    // Return the hash of a stack node with the given top atom and stack below
+    private static int hash(long atom, int below)
+    {
+        long h = (atom * 0x9E3779B97F4A7C15L) ^ (below * 0xC2B2AE3D27D4EB4FL);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // Double the hash table and reinsert every node
+    private void rehash()
+    {
+        table = new int[2 * table.length];
+        int mask = table.length - 1;
+        for (int n = 1; n < nodes; n++)
+        {
+            int slot = hash(code[n], parent[n]) & mask;
+            while (table[slot] != 0)
+            {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = n + 1;
+        }
+    }
+
+    // Return the packed atom on top of the given stack
+    public long getCode(int node)
+    {
+        return code[node];
+    }
+
+    // Return the stack below the top atom of the given stack
+    public int getParent(int node)
+    {
+        return parent[node];
+    }
+
+    // Return the number of atoms on the given stack
+    public int getDepth(int node)
+    {
+        return depth[node];
+    }
+
+    // Return the number of stack nodes
+    public int getNodeCount()
+    {
+        return nodes;
+    }
+
+    // Record that the given stack is reachable after level words, by
+    // choosing the given type after configuration prev; return false (and
+    // record nothing) if it was already reached at that level
+    public boolean addConfig(int node, int level, int prev, int choice)
+    {
+        if (seen[node] == level)
+            return false;
+        seen[node] = level;
+        if (configs == configNode.length)
+        {
+            int capacity = 2 * configs;
+            configNode = Arrays.copyOf(configNode, capacity);
+            configPrev = Arrays.copyOf(configPrev, capacity);
+            configChoice = Arrays.copyOf(configChoice, capacity);
+        }
+        configNode[configs] = node;
+        configPrev[configs] = prev;
+        configChoice[configs] = choice;
+        configs++;
+        return true;
+    }
+
+    // Return the number of configurations
+    public int getConfigCount()
+    {
+        return configs;
+    }
+
+    // Return the stack reached by the given configuration
+    public int getConfigNode(int config)
+    {
+        return configNode[config];
+    }
+
+    // Return the configuration of the previous word (or -1 before the first)
+    public int getConfigPrev(int config)
+    {
+        return configPrev[config];
+    }
+
+    // Return the type chosen for the word that led to the given configuration
+    public int getConfigChoice(int config)
+    {
+        return configChoice[config];
+    }
+}
@@ -0,0 +1,169 @@
+/*****************************************************************************
+  * GraphStackParser.java
+  * Author: Olivia Waring
+  * Runs the stack-based pregroup parsing algorithm over every type sequence of
+  * a sentence at once, GLR style: the type sequences that leave the same stack
+  * after some word share one configuration, so the work grows with the number
+  * of distinct stacks rather than the number of type sequences
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/* Configurations are reached word by word, in the order of their first type
+ sequence (last word fastest, as in PathIterator), and each keeps the
+ configuration and type it was first reached from. The first accepting
+ configuration after the last word therefore leads back to the first type
+ sequence that parses on the first try. Cancelling atoms depends on the whole
+ type sequence, not just the stack, so if no sequence parses on the first try
+ the sentence is searched again, one sequence at a time, with cancellation.
+ Unlike the stack-based search, a sequence that parses on the first try is
+ thus preferred to an earlier one that parses only after cancellation. A
+ sentence with a type whose markers are unknown to the grammar cannot be
+ packed into the stack, so its sequences are parsed one at a time on the
+ Atom objects instead, first without cancellation and then with it. */
+public class GraphStackParser
+{
+    private LambekGrammar g; // representation of a Lambek Grammar
+    private PregroupParser parser; // parser for witnesses and cancellation
+    private ThreadLocal<GraphStack> stacks; // graph-structured stack of each thread
+
+    // Return a new graph-structured stack parser for the given grammar, which
+    // falls back on the given parser
+    public GraphStackParser(LambekGrammar lg, PregroupParser p)
+    {
+        g = lg;
+        parser = p;
+        stacks = new ThreadLocal<GraphStack>();
+    }
+
+    // Return the current thread's graph-structured stack
+    private GraphStack getStack()
+    {
+        GraphStack gs = stacks.get();
+        if (gs == null)
+        {
+            gs = new GraphStack();
+            stacks.set(gs);
+        }
+        return gs;
+    }
+
+    // Parse a sentence given the candidate types of each word
+    public ParseResult parse(ArrayList<ArrayList<Type>> words)
+    {
+        int m = words.size();
+        if (PathIterator.countPaths(words) == 0)
+            return ParseResult.failure();
+        for (ArrayList<Type> types: words)
+        {
+            for (Type t: types)
+            {
+                if (!(packable(t)))
+                    return parsePaths(words);
+            }
+        }
+        GraphStack gs = getStack();
+        gs.reset();
+        gs.addConfig(GraphStack.ROOT, 0, -1, -1);
+
+        // Extend every configuration of each word by every type of the next
+        int lo = 0, hi = 1;
+        for (int k = 0; k < m; k++)
+        {
+            ArrayList<Type> types = words.get(k);
+            for (int c = lo; c < hi; c++)
+            {
+                for (int t = 0; t < types.size(); t++)
+                {
+                    int node = apply(gs, gs.getConfigNode(c), types.get(t));
+                    gs.addConfig(node, k + 1, c, t);
+                }
+            }
+            lo = hi;
+            hi = gs.getConfigCount();
+        }
+
+        // Accept the first stack holding a single standalone atom
+        ReductionKernel kernel = g.getKernel();
+        for (int c = lo; c < hi; c++)
+        {
+            int node = gs.getConfigNode(c);
+            if ((gs.getDepth(node) == 1)
+                    && (kernel.isStandalone(ReductionKernel.typeOf(gs.getCode(node)))))
+                return witness(gs, c, words);
+        }
+        return parser.parse(words);
+    }
+
+    // Return the stack reached by applying a type to the given stack
+    private int apply(GraphStack gs, int node, Type t)
+    {
+        ReductionKernel kernel = g.getKernel();
+        long[] pool = g.getAtomPool();
+        int offset = t.getPackedOffset();
+        for (int i = 0; i < t.getLength(); i++)
+        {
+            long atom;
+            if (offset >= 0)
+                atom = pool[offset + i];
+            else
+            {
+                atom = kernel.encode(t.getAtoms().get(i));
+                assert(atom != -1):"Markers unknown to grammar: " + t.getAtoms().get(i);
+            }
+            if ((node != GraphStack.ROOT) && (kernel.reduces(gs.getCode(node), atom)))
+                node = gs.getParent(node);
+            else
+                node = gs.push(atom, node);
+        }
+        return node;
+    }
+
+    // Return true if every atom of the given type can be packed with its
+    // markers, false otherwise
+    private boolean packable(Type t)
+    {
+        if (t.getPackedOffset() >= 0)
+            return true;
+        for (Atom a: t.getAtoms())
+        {
+            if (g.getKernel().encode(a) == -1)
+                return false;
+        }
+        return true;
+    }
+
+    // Parse the type sequences of a sentence one at a time, in order, and
+    // return the first that parses on the first try; if none does, search
+    // them again with cancellation
+    private ParseResult parsePaths(ArrayList<ArrayList<Type>> words)
+    {
+        ParseContext context = parser.getContext();
+        PathIterator paths = new PathIterator(words);
+        while (paths.hasNext())
+        {
+            ArrayList<Type> path = paths.next();
+            if (context.parse(path))
+                return new ParseResult(true, path, context.getLinks(), false);
+        }
+        return parser.parse(words);
+    }
+
+    // Return the result for the type sequence leading to the given final
+    // configuration, with the links found by parsing that sequence again
+    private ParseResult witness(GraphStack gs, int config, ArrayList<ArrayList<Type>> words)
+    {
+        ArrayList<Type> path = new ArrayList<Type>();
+        for (int k = words.size() - 1; k >= 0; k--)
+        {
+            path.add(words.get(k).get(gs.getConfigChoice(config)));
+            config = gs.getConfigPrev(config);
+        }
+        Collections.reverse(path);
+        ParseContext context = parser.getContext();
+        boolean parsed = context.parse(path);
+        assert(parsed):"Witness of graph-structured stack does not parse.";
+        return new ParseResult(true, path, context.getLinks(), false);
+    }
+}
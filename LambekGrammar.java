@@ -13,6 +13,7 @@ public class LambekGrammar {
     Atom dummyAtom; // used to "cancel" certain atom types during parsing
     int numMarkers; // number of marker categories
     ArrayList<Entry> entries; // list of lexcial entries
+    HashMap<String, Entry> lexicon; // lexical entries keyed by normalized lexeme
     ArrayList<ReductionRule> reductionrules; // list of reduction rules
     ArrayList<MetaRule> metarules; // list of metarules 
     ArrayList<ArrayList<String>> markerList; // list of marker types and members
@@ -22,13 +23,34 @@ public class LambekGrammar {
     ArrayList<String> adjectiveSuffixes; // list of adjectival suffixes
     ArrayList<Atom> standalones; // list of standalone atom types
     boolean[][] mappings; // compact representation of reduction rules
+    HashMap<String, Integer> atomIds; // atom type IDs keyed by simple type
+    ArrayList<ArrayList<Marker>> signatures; // distinct marker sets by signature
+    HashMap<String, Integer> signatureIds; // marker signatures keyed by values
+    ReductionKernel kernel; // precompiled table of which atoms can link
+    MorphologicalAnalyzer analyzer; // compiled suffixes and irregular forms
+    volatile long[] atomPool; // packed atoms of every lexical type, type after type
+    int poolSize; // number of packed atoms in the pool
+    private final Object poolLock = new Object(); // guards appends to the pool
+    private MetaRuleEngine lazyEngine; // expands entries on lookup (null if eager)
+    ArrayList<String> loadErrors; // problems with lines that were skipped
+    TypeInterner interner; // canonical instances of the entries' types
+    private static final int BATCH_SIZE = 4096; // entries expanded at a time
+    int metaruleDepth; // rounds of metarule expansion (0 for a fixed point)
     
-    // Build a Lambek Grammar according to specifications from a given text file 
-    public LambekGrammar(String filename) throws java.io.IOException
+    // Return a new, empty grammar for the given specification file, to be
+    // filled in by the text reader or by a GrammarSnapshot
+    LambekGrammar(File source)
     {
-        file = new File(filename);
+        file = source;
         dummyAtom = new Atom("x^0");
         entries = new ArrayList<Entry>();
+        lexicon = new HashMap<String, Entry>();
+        atomIds = new HashMap<String, Integer>();
+        signatures = new ArrayList<ArrayList<Marker>>();
+        signatures.add(new ArrayList<Marker>()); // signature 0: unmarked
+        signatureIds = new HashMap<String, Integer>();
+        atomPool = new long[1024];
+        poolSize = 0;
         reductionrules = new ArrayList<ReductionRule>();
         metarules = new ArrayList<MetaRule>();
         irregulars = new ArrayList<ArrayList<String>>();
@@ -36,6 +58,32 @@ public class LambekGrammar {
         nounSuffixes = new ArrayList<String>();
         adjectiveSuffixes = new ArrayList<String>(); 
         standalones = new ArrayList<Atom>();
+        metaruleDepth = MetaRuleEngine.DEFAULT_DEPTH;
+        loadErrors = new ArrayList<String>();
+        interner = new TypeInterner();
+    }
+    
+    // Build a Lambek Grammar according to specifications from a given text file 
+    public LambekGrammar(String filename) throws java.io.IOException
+    {
+        this(filename, MetaRuleEngine.DEFAULT_DEPTH);
+    }
+    
+    // Build a Lambek Grammar from a given text file, applying its metarules 
+    // for the given number of rounds (or until they add nothing, if 0)
+    public LambekGrammar(String filename, int depth) throws java.io.IOException
+    {
+        this(filename, depth, false);
+    }
+    
+    // Build a Lambek Grammar from a given text file; if lazy, each entry is
+    // expanded by the metarules only when it is first looked up, so that 
+    // words never looked up cost no more than their base types (and until 
+    // then, getEntries and toString show the base types alone)
+    public LambekGrammar(String filename, int depth, boolean lazy) throws java.io.IOException
+    {
+        this(new File(filename));
+        metaruleDepth = depth;
         
         // Read the grammar specifications line by line
         try {
@@ -45,9 +93,15 @@ public class LambekGrammar {
             String[] tokens; // list of delimited substrings
             int section = 1, count = -1; // to keep track of location within file
             int scenario = 0; // type of substitution 
+            int lineNumber = 0; // number of the current line
+            HashSet<String> seen = new HashSet<String>(); // lexemes read so far
+            ArrayList<Entry> batch = new ArrayList<Entry>(); // entries to expand
+            MetaRuleEngine engine = null; // built once all metarules are read
             
             while ((line = reader.readLine()) != null)
             {
+                lineNumber++;
+                
                 // Section break
                 if (line.equals("**********")) 
                 {
@@ -66,15 +120,19 @@ public class LambekGrammar {
                     {
                         numTypes = Integer.parseInt(line);
                         atomList = new Atom[numTypes];
-                        mappings = new boolean[numTypes][numTypes];
-                        for (int i = 0; i < numTypes; i++)
+                        
+                        // The dummy atom takes the ID after the last atom type
+                        mappings = new boolean[numTypes+1][numTypes+1];
+                        for (int i = 0; i <= numTypes; i++)
                         {
-                            for (int j = 0; j < numTypes; j++)
+                            for (int j = 0; j <= numTypes; j++)
                             {
                                 if (i == j)
                                     mappings[i][j] = true;
                             }
-                        }     
+                        }
+                        dummyAtom.setId(numTypes);
+                        atomIds.put(dummyAtom.getSimpleType(), numTypes);
                     }
                     
                     // Add atom types (with adjoint set to 0) 
@@ -89,6 +147,14 @@ public class LambekGrammar {
                         {
                             a = new Atom(line, 0);
                         }
+                        
+                        // The dummy atom's name is reserved, as atoms are
+                        // told apart from it by name
+                        if (a.equalTypes(dummyAtom))
+                            throw new IllegalArgumentException(file.getPath() + ":" + lineNumber
+                                + ": atom type " + a.getSimpleType() + " is reserved for the dummy atom");
+                        a.setId(count);
+                        atomIds.put(a.getSimpleType(), count);
                         atomList[count] = a;
                     }  
                     count++;
@@ -251,198 +317,25 @@ public class LambekGrammar {
                     }
                 }           
                 
-                // Section 5: LEXICAL ENTRIES
+                // Section 5: LEXICAL ENTRIES (expanded by the metarules a 
+                // batch at a time, unless the grammar is lazy)
                 else if (section == 5) 
                 {
-                    Entry newEntry;
-                    String lexeme, types;
-                    Atom a1, a2;
-                    ArrayList<Type> typeList = new ArrayList<Type>(); 
-                    ArrayList<Type> typeList_temp = new ArrayList<Type>();
-                    ArrayList<Type> moreTypes = new ArrayList<Type>();
-                    boolean alreadySeen = false;
-                    delims = "[:]+"; 
-                    tokens = line.split(delims);
-                    assert(tokens.length == 2):"Incorrect entry format: " + tokens[0];
-                    lexeme = tokens[0];
-                    types = tokens[1];
-                    delims = "[,]+";
-                    tokens = types.split(delims);
-                    
-                    // Determine whether entry already exists
-                    for (Entry e: entries) 
-                    {
-                        if (lexeme.equals(e.getLex()))
-                            alreadySeen = true;
-                    }
-                    
-                    // Characterize and generate new entry
-                    if (!alreadySeen)
+                    if (engine == null)
+                        engine = new MetaRuleEngine(metarules, metaruleDepth, interner);
+                    Entry e = readEntry(line, lineNumber, seen);
+                    if (e != null)
                     {
-                        newEntry = new Entry(lexeme, tokens); 
-                        int index = 0;
-                        
-                        // Perform three successive metarule applications
-                        while (index < 3)
+                        entries.add(e);
+                        if (!lazy)
                         {
-                            typeList = newEntry.getTypes();
-                            typeList_temp = new ArrayList<Type>();
-                            moreTypes = new ArrayList<Type>();
-                            
-                            // Genrate a copy of typeList that can be safely
-                            // modified within the inner loop
-                            for (Type toCopy: typeList)
-                            {
-                                typeList_temp.add(toCopy); 
-                            }
-                            
-                            // Apply metarules to each type
-                            for (Type t_cur: typeList)
+                            batch.add(e);
+                            if (batch.size() == BATCH_SIZE)
                             {
-                                for (MetaRule m: metarules)
-                                {
-                                    Type t_meta = m.getType1(); 
-                                    ArrayList<Atom> atoms_cur = t_cur.getAtoms();
-                                    ArrayList<Atom> atoms_meta = t_meta.getAtoms();
-                                    boolean isCaseOf = false;
-                                    int nongenerics = 0;
-                                    int matches = 0;
-                                    
-                                    // Create template for use with generics
-                                    int[] template = new int[atoms_cur.size()];
-                                    for (int i=0; i < template.length; i++)
-                                    {
-                                        template[i] = -1;
-                                    }
-                                    for (int j=0; j<atoms_meta.size(); j++)
-                                    {
-                                        for (int i=0; i<atoms_cur.size(); i++)
-                                        {
-                                            a1 = atoms_cur.get(i);
-                                            a2 = atoms_meta.get(j);
-                                            if ((!(a2.isGeneric())) && (a1.equals(a2)))
-                                                // adjoint taken into account in this equality
-                                            {
-                                                template[i] = j;
-                                            }
-                                        }
-                                    }
-                                    
-                                    /* Determine whether t_cur is a case of t_meta
-                                     NB: This algorithm *FAILS* if a compound type 
-                                     contains two identical atoms */
-                                    for (Atom a: atoms_meta)
-                                    {
-                                        if (!(a.isGeneric()))
-                                            nongenerics++;
-                                    }
-                                    for (int i = 0; i < template.length; i++)
-                                    {
-                                        // This precludes boundary problems 
-                                        if ((template[i] == 0) && (i != 0))
-                                            matches += 0;
-                                        else if ((template[i] == atoms_meta.size() - 1) 
-                                                     && (i != template.length - 1))
-                                            matches += 0;
-                                        else if (template[i] >= 0)
-                                            matches++;     
-                                    }
-                                    if (matches == nongenerics)
-                                    {
-                                        isCaseOf = true;
-                                    }
-                                    
-                                    // If t_cur is a case of t_meta, instantiate generic atoms
-                                    if (isCaseOf) 
-                                    {
-                                        ArrayList<Atom> atomList = new ArrayList<Atom>();
-                                        int i = 0;
-                                        int j = 0;
-                                        while ((i < template.length) && (j < atoms_meta.size()))
-                                        {     
-                                            // Compile list of atoms a generic atom might represent
-                                            ArrayList<Atom> shortList = new ArrayList<Atom>();
-                                            while ((i < template.length) && (template[i] < 0))
-                                            {
-                                                shortList.add(atoms_cur.get(i).copy());
-                                                i++;
-                                            }
-                                            
-                                            if (atoms_meta.get(j).isGeneric()) 
-                                            {
-                                                atomList.add(new Atom(atoms_meta.get(j).getSimpleType(), 
-                                                                      atoms_meta.get(j).getAdjoint(), 
-                                                                      true, shortList));
-                                                j++;
-                                            }
-                                            
-                                            while ((i < template.length) && (template[i] >= 0))
-                                            {
-                                                atomList.add(atoms_cur.get(i).copy());
-                                                i++;
-                                                j++;
-                                            }
-                                        }
-                                        
-                                        // Apply metarule to instantiated generic atom
-                                        Type t1_new = new Type(atomList);
-                                        Type t2 = m.getType2();
-                                        Type t2_new = t2.copy(); 
-                                        for (Atom x: t1_new.getAtoms())
-                                        {
-                                            for (Atom y: t2_new.getAtoms())
-                                            {
-                                                // If they have the same generic type
-                                                if (x.isGeneric() && y.isGeneric()
-                                                        && x.equalTypes(y))
-                                                {
-                                                    y.setAtoms(x.getAtoms());
-                                                }
-                                            }
-                                        }
-                                        
-                                        // Assign appropriate adjoints and expand type representation
-                                        ArrayList<Atom> a_temp = new ArrayList<Atom>();
-                                        for (Atom z: t2_new.getAtoms())
-                                        {
-                                            if ((z.isGeneric()) && (z.getAtoms() != null))
-                                            {
-                                                for (Atom w: z.getAtoms())
-                                                {
-                                                    w.setAdjoint(z.getAdjoint());
-                                                    a_temp.add(w);
-                                                }
-                                            }
-                                            else if (!(z.isGeneric()))
-                                            {
-                                                a_temp.add(z);
-                                            }
-                                        }
-                                        
-                                        // Add extra types generated by the metarule,
-                                        // provided they are not already listed
-                                        Type t_temp = new Type(a_temp);
-                                        boolean typeExists = false;
-                                        for (Type q: typeList_temp)
-                                        {
-                                            if (q.equals(t_temp))
-                                            {
-                                                typeExists = true;
-                                                break;
-                                            }
-                                        }
-                                        if (!typeExists)
-                                        {
-                                            moreTypes.add(t_temp);
-                                            typeList_temp.add(t_temp);
-                                        }
-                                    }
-                                }
+                                engine.expandAll(batch);
+                                batch.clear();
                             }
-                            newEntry.addTypes(moreTypes);
-                            index++;
                         }
-                        entries.add(newEntry);
                     }
                 }
                 
@@ -459,24 +352,312 @@ public class LambekGrammar {
                     reductionrules.add(new ReductionRule(a1, a2));
                     h1 = getHash(a1);
                     h2 = getHash(a2);
+                    a1.setId(h1);
+                    a2.setId(h2);
                     mappings[h1][h2] = true;
                 }
             }
             reader.close();
-            Collections.sort(entries);
-            Collections.sort(reductionrules);
+            if (engine == null)
+                engine = new MetaRuleEngine(metarules, metaruleDepth, interner);
+            if (lazy)
+                lazyEngine = engine;
+            else
+                engine.expandAll(batch);
+            prepare();
         } 
         catch(FileNotFoundException fnfe) { 
             System.out.println(fnfe.getMessage());
         }
     } 
     
+    // Return the grammar specified by the given text file, read from its
+    // compiled snapshot if that is up to date, and otherwise read from the
+    // text itself (writing a fresh snapshot for next time)
+    public static LambekGrammar load(String filename) throws java.io.IOException
+    {
+        return load(filename, MetaRuleEngine.DEFAULT_DEPTH);
+    }
+    
+    // Return the grammar specified by the given text file, with its metarules
+    // applied for the given number of rounds (or until they add nothing, if 0)
+    public static LambekGrammar load(String filename, int depth) throws java.io.IOException
+    {
+        File source = new File(filename);
+        File snapshot = GrammarSnapshot.snapshotFor(source);
+        LambekGrammar lg = GrammarSnapshot.read(source, snapshot, depth);
+        if (lg != null)
+            return lg;
+        long[] stamp = GrammarSnapshot.stamp(source);
+        lg = new LambekGrammar(filename, depth);
+        if ((stamp != null) && (lg.kernel != null))
+        {
+            // The snapshot only saves time, so failing to write it is harmless
+            try {
+                GrammarSnapshot.write(lg, stamp, snapshot);
+            }
+            catch(IOException ioe) { 
+            }
+        }
+        return lg;
+    }
+    
+    // Sort the lexical entries and reduction rules, then derive the
+    // structures used while parsing: atom type IDs and marker signatures,
+    // the atom pool, the lexicon, the reduction kernel, and the analyzer
+    void prepare()
+    {
+        Collections.sort(entries);
+        Collections.sort(reductionrules);
+        for (Entry e: entries)
+        {
+            resolveAtoms(e);
+        }
+        
+        // Lazily derived types draw their atoms from the base types and the
+        // metarules, so registering the metarules' marker sets now means
+        // the kernel knows every signature those types can have
+        if (lazyEngine != null)
+        {
+            for (MetaRule m: metarules)
+            {
+                for (Atom a: m.getType2().getAtoms())
+                {
+                    internSignature(a.getMarkers());
+                }
+            }
+        }
+        indexEntries();
+        kernel = new ReductionKernel(this);
+        analyzer = new MorphologicalAnalyzer(this);
+    }
+    
+    // Return the number of rounds of metarule expansion (0 for a fixed point)
+    public int getMetaruleDepth()
+    {
+        return metaruleDepth;
+    }
+    
+    // Return the interner holding the canonical instances of the types of
+    // the grammar's entries
+    public TypeInterner getInterner()
+    {
+        return interner;
+    }
+    
+    // Return the grammar specification file
+    public File getFile()
+    {
+        return file;
+    }
+    
     // Return list of lexical entries
     public ArrayList<Entry> getEntries()
     {
         return entries;
     }
     
+    // Return the lexical entry matching the given word (ignoring case), or 
+    // null if the word is not in the dictionary
+    public Entry lookup(String word)
+    {
+        return expanded(lexicon.get(normalize(word)));
+    }
+    
+    // Return the lexical entry for the word of text from start (inclusive) to
+    // end (exclusive), or null if there is none
+    public Entry lookup(CharSequence text, int start, int end)
+    {
+        return expanded(lexicon.get(normalize(text, start, end)));
+    }
+    
+    // Return the lexical entry on the given line of the specification file,
+    // or null if its lexeme has been seen before or the line is malformed (in
+    // which case the problem is reported and reading carries on)
+    private Entry readEntry(String line, int lineNumber, HashSet<String> seen)
+    {
+        Entry e;
+        try {
+            e = Entry.parse(line);
+            for (Type t: e.getTypes())
+            {
+                for (Atom a: t.getAtoms())
+                {
+                    if (!(atomIds.containsKey(a.getSimpleType())))
+                        throw new IllegalArgumentException("unknown atom type: " 
+                                                           + a.getSimpleType());
+                }
+            }
+        }
+        catch(IllegalArgumentException iae) {
+            String error = file.getPath() + ":" + lineNumber + ": " + iae.getMessage();
+            loadErrors.add(error);
+            System.err.println(error);
+            return null;
+        }
+        if (!(seen.add(e.getLex())))
+            return null;
+        interner.intern(e);
+        return e;
+    }
+    
+    // Return the problems with the lines of the specification file that were
+    // skipped while reading it
+    public ArrayList<String> getLoadErrors()
+    {
+        return loadErrors;
+    }
+    
+    // Return true if entries are expanded by the metarules only when first
+    // looked up, false otherwise
+    public boolean isLazy()
+    {
+        return lazyEngine != null;
+    }
+    
+    // Return the given entry (or null), expanded by the metarules if the
+    // grammar is lazy and this is the first time it is looked up; an entry 
+    // is expanded once, however many threads look it up at once, and the 
+    // derived types are resolved and packed before any of them sees it
+    private Entry expanded(Entry e)
+    {
+        if ((e == null) || (lazyEngine == null) || (e.isExpanded()))
+            return e;
+        synchronized (e)
+        {
+            if (!(e.isExpanded()))
+            {
+                int base = e.getTypes().size();
+                lazyEngine.expand(e);
+                ArrayList<Type> types = e.getTypes();
+                synchronized (poolLock)
+                {
+                    for (int i = base; i < types.size(); i++)
+                    {
+                        resolveType(types.get(i));
+                    }
+                }
+                e.markExpanded();
+            }
+        }
+        return e;
+    }
+    
+    // Return the case-normalized form of a word, as used to key the lexicon; 
+    // two words normalize identically exactly when equalsIgnoreCase holds
+    public static String normalize(String word)
+    {
+        return normalize(word, 0, word.length());
+    }
+    
+    // Return the case-normalized form of the characters of text from start
+    // (inclusive) to end (exclusive)
+    public static String normalize(CharSequence text, int start, int end)
+    {
+        StringBuilder normal = new StringBuilder(end - start);
+        for (int i = start; i < end; i++)
+        {
+            normal.append(Character.toLowerCase(Character.toUpperCase(text.charAt(i))));
+        }
+        return normal.toString();
+    }
+    
+    // Stamp every atom of an entry with its atom type ID, so that reduction
+    // lookups on the parse path need no string comparisons, and pack each of
+    // its types into the atom pool
+    private void resolveAtoms(Entry e)
+    {
+        for (Type t: e.getTypes())
+        {
+            resolveType(t);
+        }
+    }
+    
+    // Stamp every atom of a type with its IDs and pack it into the atom pool,
+    // unless an entry sharing the type has done so already
+    private void resolveType(Type t)
+    {
+        if (t.getPackedOffset() >= 0)
+            return;
+        for (Atom a: t.getAtoms())
+        {
+            a.setId(getHash(a));
+            a.setSignature(internSignature(a.getMarkers()));
+        }
+        packType(t);
+    }
+    
+    // Append the packed codes of a type's atoms to the atom pool; a grown 
+    // pool is filled before it is published, so a reader of the pool always
+    // finds the atoms of every type it has been handed
+    private void packType(Type t)
+    {
+        List<Atom> atoms = t.getAtoms();
+        long[] pool = atomPool;
+        if (poolSize + atoms.size() > pool.length)
+        {
+            pool = Arrays.copyOf(pool, Math.max(2 * pool.length, poolSize + atoms.size()));
+        }
+        int offset = poolSize;
+        for (Atom a: atoms)
+        {
+            pool[poolSize++] = ReductionKernel.encode(a.getId(), a.getAdjoint(), 
+                                                      a.getSignature());
+        }
+        t.setPackedOffset(offset);
+        atomPool = pool;
+    }
+    
+    // Return the signature of a marker set, registering it if it has not been
+    // seen before
+    private int internSignature(List<Marker> markers)
+    {
+        if ((markers == null) || (markers.size() == 0))
+            return 0;
+        String key = signatureKey(markers);
+        Integer sig = signatureIds.get(key);
+        if (sig == null)
+        {
+            sig = signatures.size();
+            signatures.add(new ArrayList<Marker>(markers));
+            signatureIds.put(key, sig);
+        }
+        return sig;
+    }
+    
+    // Return the key under which a marker set is registered
+    private static String signatureKey(List<Marker> markers)
+    {
+        String key = "";
+        for (Marker m: markers)
+        {
+            key += "_" + m.getType();
+        }
+        return key;
+    }
+    
+    // Index the (sorted) lexical entries by normalized lexeme; where several 
+    // entries differ only in case, the first in sorted order is kept, as with
+    // a linear scan of the dictionary
+    private void indexEntries()
+    {
+        lexicon = new HashMap<String, Entry>(entries.size() * 2);
+        for (Entry e: entries)
+        {
+            String key = normalize(e.getLex());
+            if (!(lexicon.containsKey(key)))
+            {
+                lexicon.put(key, e);
+            }
+        }
+    }
+    
+    // Return list of metarules, in the order they are applied
+    public ArrayList<MetaRule> getMetaRules()
+    {
+        return metarules;
+    }
+    
     // Return list of reduction rules
     public ArrayList<ReductionRule> getReductionRules()
     {
@@ -489,6 +670,48 @@ public class LambekGrammar {
         return mappings;
     }
      
+    // Return precompiled reduction kernel
+    public ReductionKernel getKernel()
+    {
+        return kernel;
+    }
+    
+    // Return the analyzer compiled from the grammar's suffixes and irregular 
+    // forms
+    public MorphologicalAnalyzer getAnalyzer()
+    {
+        return analyzer;
+    }
+    
+    // Return the pool of packed atoms, in which each packed type occupies the
+    // slice starting at its packed offset
+    public long[] getAtomPool()
+    {
+        return atomPool;
+    }
+    
+    // Return list of distinct marker sets, indexed by signature
+    public ArrayList<ArrayList<Marker>> getSignatures()
+    {
+        return signatures;
+    }
+    
+    // Return the marker signature of an atom, or -1 if its marker set does 
+    // not occur in this grammar
+    public int getSignature(Atom atom)
+    {
+        int sig = atom.getSignature();
+        if (sig < 0)
+        {
+            List<Marker> markers = atom.getMarkers();
+            if ((markers == null) || (markers.size() == 0))
+                return 0;
+            Integer known = signatureIds.get(signatureKey(markers));
+            sig = (known == null) ? -1 : known;
+        }
+        return sig;
+    }
+    
     // Return list of possible atom types
     public Atom[] getAtomList()
     {
@@ -546,12 +769,19 @@ public class LambekGrammar {
     // Return true if a1 reduces to a2 according to reduction rules, false otherwise
     public boolean reductionExists(Atom a1, Atom a2)
     {
-        boolean flag = false;
-        int h1 = getHash(a1);
-        int h2 = getHash(a2);
-        if (mappings[h1][h2])
-            flag = true;
-        return flag;
+        return mappings[getId(a1)][getId(a2)];
+    }
+    
+    // Return the atom type ID of an atom, resolving it by name only if the 
+    // atom was not built by this grammar
+    public int getId(Atom atom)
+    {
+        int id = atom.getId();
+        if (id < 0)
+        {
+            id = getHash(atom);
+        }
+        return id;
     }
     
     // Return string representation of Lambek grammar
@@ -661,22 +891,14 @@ public class LambekGrammar {
         return grammarString;
     }
     
-    // Return hash index of corresponding atom type
+    // Return hash index of corresponding atom type (the dummy atom has its 
+    // own index, one past the last atom type); an atom of a type unknown to
+    // the grammar is an IllegalArgumentException
     public int getHash (Atom atom)
     {
-        boolean notSeen = false;
-        int i;
-        for (i = 0; i < atomList.length; i++)
-        {
-            notSeen = false;
-            if (atomList[i].equalTypes(atom))
-                break; 
-            else if (dummyAtom.equalTypes(atom))
-                break;
-            else 
-                notSeen = true;
-        }
-        assert(!notSeen):"Atom not found in type list: " + atom.toString();
-        return i;
+        Integer id = atomIds.get(atom.getSimpleType());
+        if (id == null)
+            throw new IllegalArgumentException("Atom not found in type list: " + atom.toString());
+        return id;
     }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+/*****************************************************************************
+  * MappedCorpus.java
+  * Author: Olivia Waring
+  * Reads a UTF-8 corpus of any size through memory mapping, one chunk of
+  * whole lines at a time, so that only the chunks being processed are in
+  * memory and the lines of each are decoded by the thread that parses them
+  *****************************************************************************/
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class MappedCorpus implements Closeable
+{
+    private FileChannel channel; // open corpus file
+    private long size; // length of the corpus in bytes
+    private long position; // offset of the next chunk
+    private long chunkSize; // target length of a chunk in bytes
+    private int chunks; // number of chunks returned so far
+    private ByteBuffer probe; // bytes read while looking for a line break
+
+    // Return a new reader of the named corpus, which splits it into chunks of
+    // about the given number of bytes
+    public MappedCorpus(String filename, long chunkBytes) throws IOException
+    {
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        size = channel.size();
+        position = 0;
+        chunkSize = Math.max(1, chunkBytes);
+        chunks = 0;
+        probe = ByteBuffer.allocate(8192);
+    }
+
+    // Return the next chunk of whole lines, or null at the end of the corpus
+    public CorpusChunk nextChunk() throws IOException
+    {
+        if (position >= size)
+            return null;
+        long end = boundary(Math.min(size, position + chunkSize));
+        if (end - position > Integer.MAX_VALUE)
+            throw new IOException("Line too long to map at offset " + position);
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, end - position);
+        position = end;
+        return new CorpusChunk(bytes, chunks++);
+    }
+
+    // Return the offset just after the first line terminator at or beyond
+    // target (treating "\r\n" as one terminator), or the end of the corpus
+    private long boundary(long target) throws IOException
+    {
+        long offset = target;
+        boolean carriage = false; // whether the last byte read was '\r'
+        while (offset < size)
+        {
+            probe.clear();
+            int count = channel.read(probe, offset);
+            if (count <= 0)
+                break;
+            for (int i = 0; i < count; i++)
+            {
+                byte b = probe.get(i);
+                if (carriage)
+                    return (b == '\n') ? offset + i + 1 : offset + i;
+                if (b == '\n')
+                    return offset + i + 1;
+                carriage = (b == '\r');
+            }
+            offset += count;
+        }
+        return size;
+    }
+
+    // Close the corpus file
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
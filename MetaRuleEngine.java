@@ -0,0 +1,324 @@
+/*****************************************************************************
+  * MetaRuleEngine.java
+  * Author: Olivia Waring
+  * Expands lexical entries by the metarules of a Lambek Grammar, deriving new
+  * types from old until a fixed point (or a given number of rounds) is reached
+  *****************************************************************************/
+
+import java.util.*;
+
+/* A metarule can only apply to a type containing an atom equal to one of the
+ * rule's non-generic atoms (its anchors), so rules are indexed by the simple
+ * type and adjoint of each anchor, and a type is matched only against the
+ * rules some atom of it anchors (plus any rules made wholly of generics).
+ *
+ * Rounds are semi-naive: a type derives the same types whenever the rules
+ * are applied to it, so each round applies them only to the types the round
+ * before it added. The outcome, types and order alike, is that of applying
+ * every rule to every type in every round.
+ *
+ * Derived types are deduplicated through buckets keyed by the simple types
+ * and adjoints of their atoms; Type.matches also compares markers, but never
+ * holds between types whose keys differ, so only one bucket need be scanned.
+ *
+ * Atoms are immutable, so instantiating a rule builds its target type from
+ * the matched atoms themselves (with adjoints replaced where generics stand
+ * for them) rather than from copies patched in place. */
+
+public class MetaRuleEngine
+{
+    public static final int DEFAULT_DEPTH = 3; // rounds applied by default
+
+    private ArrayList<MetaRule> metarules; // rules in the order they are applied
+    private HashMap<String, int[]> anchored; // rules keyed by their anchor atoms
+    private int[] unanchored; // rules with no non-generic atoms
+    private int depth; // number of rounds (0 to run until nothing is added)
+    private TypeInterner interner; // shares added types with equal ones
+
+    // Return an engine applying the given metarules for the given number of
+    // rounds, or until no round adds a type if depth is 0
+    public MetaRuleEngine(ArrayList<MetaRule> rules, int rounds)
+    {
+        this(rules, rounds, new TypeInterner());
+    }
+
+    // Return an engine as above whose derived types are interned by the
+    // given interner
+    public MetaRuleEngine(ArrayList<MetaRule> rules, int rounds, TypeInterner typeInterner)
+    {
+        metarules = rules;
+        depth = rounds;
+        interner = typeInterner;
+        HashMap<String, ArrayList<Integer>> index = new HashMap<String, ArrayList<Integer>>();
+        ArrayList<Integer> free = new ArrayList<Integer>();
+        for (int r = 0; r < metarules.size(); r++)
+        {
+            boolean anchoredRule = false;
+            for (Atom a: metarules.get(r).getType1().getAtoms())
+            {
+                if (a.isGeneric())
+                    continue;
+                anchoredRule = true;
+                ArrayList<Integer> bucket = index.get(anchorKey(a));
+                if (bucket == null)
+                {
+                    bucket = new ArrayList<Integer>();
+                    index.put(anchorKey(a), bucket);
+                }
+                if ((bucket.size() == 0) || (bucket.get(bucket.size() - 1) != r))
+                    bucket.add(r);
+            }
+            if (!anchoredRule)
+                free.add(r);
+        }
+        anchored = new HashMap<String, int[]>();
+        for (Map.Entry<String, ArrayList<Integer>> e: index.entrySet())
+        {
+            anchored.put(e.getKey(), toArray(e.getValue()));
+        }
+        unanchored = toArray(free);
+    }
+
+    // Return the number of rounds applied (0 for a fixed point)
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    // Expand every entry of the list, several at a time
+    public void expandAll(List<Entry> entries)
+    {
+        entries.parallelStream().forEach(this::expand);
+    }
+
+    // Add to an entry the types its metarules derive, round after round
+    public void expand(Entry entry)
+    {
+        ArrayList<Type> types = entry.getTypes();
+        HashMap<Long, ArrayList<Type>> seen = new HashMap<Long, ArrayList<Type>>();
+        for (Type t: types)
+        {
+            remember(seen, t);
+        }
+        BitSet candidates = new BitSet(metarules.size());
+        int from = 0;
+        for (int round = 0; (depth == 0) || (round < depth); round++)
+        {
+            int to = types.size();
+            ArrayList<Type> moreTypes = new ArrayList<Type>();
+            for (int i = from; i < to; i++)
+            {
+                Type t_cur = types.get(i);
+                findCandidates(t_cur, candidates);
+                for (int r = candidates.nextSetBit(0); r >= 0; r = candidates.nextSetBit(r + 1))
+                {
+                    Type t_temp = apply(metarules.get(r), t_cur);
+                    if ((t_temp != null) && (!(contains(seen, t_temp))))
+                    {
+                        t_temp = interner.intern(t_temp);
+                        remember(seen, t_temp);
+                        moreTypes.add(t_temp);
+                    }
+                }
+            }
+            if (moreTypes.size() == 0)
+                break;
+            entry.addTypes(moreTypes);
+            from = to;
+        }
+    }
+
+    // Mark the rules that may apply to the given type, in rule order
+    private void findCandidates(Type t, BitSet candidates)
+    {
+        candidates.clear();
+        for (int r: unanchored)
+        {
+            candidates.set(r);
+        }
+        for (Atom a: t.getAtoms())
+        {
+            int[] rules = anchored.get(anchorKey(a));
+            if (rules != null)
+            {
+                for (int r: rules)
+                {
+                    candidates.set(r);
+                }
+            }
+        }
+    }
+
+    // Return the type the metarule derives from t_cur, or null if t_cur is
+    // not a case of the rule's starting type (only types added to an entry
+    // are interned, so rejected candidates are not kept)
+    public Type apply(MetaRule m, Type t_cur)
+    {
+        Type t_meta = m.getType1();
+        List<Atom> atoms_cur = t_cur.getAtoms();
+        List<Atom> atoms_meta = t_meta.getAtoms();
+        int nongenerics = 0;
+        int matches = 0;
+
+        // Create template for use with generics
+        int[] template = new int[atoms_cur.size()];
+        for (int i=0; i < template.length; i++)
+        {
+            template[i] = -1;
+        }
+        for (int j=0; j<atoms_meta.size(); j++)
+        {
+            for (int i=0; i<atoms_cur.size(); i++)
+            {
+                Atom a1 = atoms_cur.get(i);
+                Atom a2 = atoms_meta.get(j);
+                if ((!(a2.isGeneric())) && (a1.matches(a2)))
+                    // adjoint taken into account in this equality
+                {
+                    template[i] = j;
+                }
+            }
+        }
+
+        /* Determine whether t_cur is a case of t_meta
+         NB: This algorithm *FAILS* if a compound type
+         contains two identical atoms */
+        for (Atom a: atoms_meta)
+        {
+            if (!(a.isGeneric()))
+                nongenerics++;
+        }
+        for (int i = 0; i < template.length; i++)
+        {
+            // This precludes boundary problems
+            if ((template[i] == 0) && (i != 0))
+                matches += 0;
+            else if ((template[i] == atoms_meta.size() - 1)
+                         && (i != template.length - 1))
+                matches += 0;
+            else if (template[i] >= 0)
+                matches++;
+        }
+        if (matches != nongenerics)
+            return null;
+
+        // t_cur is a case of t_meta, so instantiate generic atoms
+        ArrayList<Atom> atomList = new ArrayList<Atom>();
+        int i = 0;
+        int j = 0;
+        while ((i < template.length) && (j < atoms_meta.size()))
+        {
+            // Compile list of atoms a generic atom might represent
+            ArrayList<Atom> shortList = new ArrayList<Atom>();
+            while ((i < template.length) && (template[i] < 0))
+            {
+                shortList.add(atoms_cur.get(i));
+                i++;
+            }
+
+            if (atoms_meta.get(j).isGeneric())
+            {
+                atomList.add(new Atom(atoms_meta.get(j).getSimpleType(),
+                                      atoms_meta.get(j).getAdjoint(),
+                                      true, shortList));
+                j++;
+            }
+
+            while ((i < template.length) && (template[i] >= 0))
+            {
+                atomList.add(atoms_cur.get(i));
+                i++;
+                j++;
+            }
+        }
+
+        // Bind each generic atom of the starting type to the atoms it stands
+        // for (the last binding of a repeated generic wins)
+        HashMap<String, List<Atom>> bindings = new HashMap<String, List<Atom>>();
+        for (Atom x: atomList)
+        {
+            if (x.isGeneric())
+                bindings.put(x.getSimpleType(), x.getAtoms());
+        }
+
+        // Expand the target type, giving the atoms each generic stands for
+        // the generic's adjoint
+        ArrayList<Atom> a_temp = new ArrayList<Atom>();
+        for (Atom z: m.getType2().getAtoms())
+        {
+            if (z.isGeneric())
+            {
+                List<Atom> bound = bindings.containsKey(z.getSimpleType()) 
+                    ? bindings.get(z.getSimpleType()) : z.getAtoms();
+                if (bound != null)
+                {
+                    for (Atom w: bound)
+                    {
+                        a_temp.add(w.withAdjoint(z.getAdjoint()));
+                    }
+                }
+            }
+            else
+            {
+                a_temp.add(z);
+            }
+        }
+        return new Type(a_temp);
+    }
+
+    // Return true if an equal type has been seen, false otherwise
+    private static boolean contains(HashMap<Long, ArrayList<Type>> seen, Type t)
+    {
+        ArrayList<Type> bucket = seen.get(typeKey(t));
+        if (bucket != null)
+        {
+            for (Type q: bucket)
+            {
+                if (q.matches(t))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    // Record a type as seen
+    private static void remember(HashMap<Long, ArrayList<Type>> seen, Type t)
+    {
+        Long key = typeKey(t);
+        ArrayList<Type> bucket = seen.get(key);
+        if (bucket == null)
+        {
+            bucket = new ArrayList<Type>(1);
+            seen.put(key, bucket);
+        }
+        bucket.add(t);
+    }
+
+    // Return the hash of the simple types and adjoints of a type's atoms
+    private static long typeKey(Type t)
+    {
+        long key = t.getLength();
+        for (Atom a: t.getAtoms())
+        {
+            key = key * 1000003L + a.getSimpleType().hashCode();
+            key = key * 31L + a.getAdjoint();
+        }
+        return key;
+    }
+
+    // Return the key under which a rule anchored by the given atom is indexed
+    private static String anchorKey(Atom a)
+    {
+        return a.getSimpleType() + "^" + a.getAdjoint();
+    }
+
+    private static int[] toArray(ArrayList<Integer> list)
+    {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++)
+        {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,191 @@
+/*****************************************************************************
+  * MorphologicalAnalyzer.java
+  * Author: Olivia Waring
+  * Finds the lexical entry for a word that is not in the dictionary as it
+  * stands, by stripping verbal, nominal, and adjectival suffixes and by
+  * substituting irregular forms, as listed in a Lambek Grammar
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/* The forms tried, in order, are: the word itself; the word without the
+ first verbal suffix (in list order) it ends with; the word without each
+ nominal suffix in turn, in list order, that it ends with once the earlier
+ ones are gone; likewise for adjectival suffixes; the word after each
+ irregular substitution in turn whose pattern it contains once the earlier
+ ones are made; and that last form without its first verbal suffix. These
+ are the forms the original lookup loop visited before it began to repeat
+ itself. */
+public class MorphologicalAnalyzer
+{
+    private LambekGrammar g; // grammar whose dictionary is searched
+    private SuffixTrie verbal; // verbal suffixes
+    private SuffixTrie nominal; // nominal suffixes
+    private SuffixTrie adjectival; // adjectival suffixes
+    private PatternAutomaton irregular; // patterns of irregular forms
+    private ArrayList<String> replacements; // replacement of each pattern
+    private LongAdder[] resolved; // words found in each form (see FORMS)
+    private LongAdder unknown; // words found in no form
+
+    // Names of the forms tried, in order
+    public static final String[] FORMS = { "as is", "verbal", "nominal",
+        "adjectival", "irregular", "irregular verbal" };
+
+    // Return a new analyzer compiled from the suffixes and irregular forms of
+    // the given grammar
+    public MorphologicalAnalyzer(LambekGrammar lg)
+    {
+        g = lg;
+        verbal = new SuffixTrie(g.getVerbalSuffixes());
+        nominal = new SuffixTrie(g.getNounSuffixes());
+        adjectival = new SuffixTrie(g.getAdjectiveSuffixes());
+        ArrayList<String> patterns = new ArrayList<String>();
+        replacements = new ArrayList<String>();
+        for (ArrayList<String> pair: g.getIrregulars())
+        {
+            patterns.add(pair.get(0));
+            replacements.add(pair.get(1));
+        }
+        irregular = new PatternAutomaton(patterns);
+        resolved = new LongAdder[FORMS.length];
+        for (int i = 0; i < FORMS.length; i++)
+        {
+            resolved[i] = new LongAdder();
+        }
+        unknown = new LongAdder();
+    }
+
+    // Return the number of words found in each form (see FORMS)
+    public long[] getResolvedCounts()
+    {
+        long[] counts = new long[FORMS.length];
+        for (int i = 0; i < FORMS.length; i++)
+        {
+            counts[i] = resolved[i].sum();
+        }
+        return counts;
+    }
+
+    // Return the number of words found in no form
+    public long getUnknownCount()
+    {
+        return unknown.sum();
+    }
+
+    // Return the lexical entry for the word of text from start (inclusive) to
+    // end (exclusive), or null if no form of it is in the dictionary
+    public Entry analyze(CharSequence text, int start, int end)
+    {
+        Entry entry = find(text, start, end);
+        if (entry != null)
+            return entry;
+        return modify(text.subSequence(start, end).toString());
+    }
+
+    // Return the lexical entry for the word of text from start (inclusive) to
+    // end (exclusive) as it stands, or null if it is not in the dictionary
+    // (in which case modify may be tried on it)
+    public Entry find(CharSequence text, int start, int end)
+    {
+        Entry entry = g.lookup(text, start, end);
+        if (entry != null)
+            resolved[0].increment();
+        return entry;
+    }
+
+    // Return the lexical entry for the word, or null if no form of it is in
+    // the dictionary
+    public Entry analyze(String word)
+    {
+        Entry entry = g.lookup(word);
+        if (entry != null)
+        {
+            resolved[0].increment();
+            return entry;
+        }
+        return modify(word);
+    }
+
+    // Return the lexical entry for a modified form of a word not in the
+    // dictionary, or null if there is none
+    public Entry modify(String word)
+    {
+        int form = 1;
+        Entry entry = g.lookup(stripFirst(word, verbal));
+        if (entry == null)
+        {
+            form++;
+            entry = g.lookup(stripEach(word, nominal));
+        }
+        if (entry == null)
+        {
+            form++;
+            entry = g.lookup(stripEach(word, adjectival));
+        }
+        if (entry == null)
+        {
+            form++;
+            String substituted = substitute(word);
+            entry = g.lookup(substituted);
+            if (entry == null)
+            {
+                form++;
+                entry = g.lookup(stripFirst(substituted, verbal));
+            }
+        }
+        if (entry == null)
+            unknown.increment();
+        else
+            resolved[form].increment();
+        return entry;
+    }
+
+    // Return the word without the first suffix (in list order) it ends with
+    public static String stripFirst(String word, SuffixTrie suffixes)
+    {
+        int s = suffixes.match(word, word.length(), 0);
+        if (s < 0)
+            return word;
+        return word.substring(0, word.length() - suffixes.getLength(s));
+    }
+
+    // Return the word without each suffix in turn (in list order) that it
+    // ends with once the earlier ones have been removed
+    public static String stripEach(String word, SuffixTrie suffixes)
+    {
+        int end = word.length();
+        int s = suffixes.match(word, end, 0);
+        while (s >= 0)
+        {
+            end -= suffixes.getLength(s);
+            s = suffixes.match(word, end, s + 1);
+        }
+        return word.substring(0, end);
+    }
+
+    // Return the word after each irregular substitution in turn (in list
+    // order) whose pattern it contains once the earlier ones have been made
+    public String substitute(String word)
+    {
+        int s = irregular.match(word, 0);
+        while (s >= 0)
+        {
+            word = replacements.get(s);
+            s = irregular.match(word, s + 1);
+        }
+        return word;
+    }
+
+    // Return string representation of the number of words found in each form
+    public String toString()
+    {
+        long[] counts = getResolvedCounts();
+        String analyzerString = "";
+        for (int i = 0; i < counts.length; i++)
+        {
+            analyzerString += "Found " + FORMS[i] + ": " + counts[i] + "\n";
+        }
+        return analyzerString + "Not found: " + getUnknownCount();
+    }
+}
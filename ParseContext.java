@@ -0,0 +1,868 @@
+/*****************************************************************************
+  * ParseContext.java
+  * Author: Olivia Waring
+  * Holds the working state of the stack-based pregroup parsing algorithm for
+  * a single parse, so that many parses may run at once against one grammar
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ParseContext
+{
+    private LambekGrammar g; // representation of a Lambek Grammar (read only)
+    private Stack stack; // stack of atom indices to be processed
+    private int[] partner; // index of the atom each atom is linked to (or -1)
+    private int length; // number of atoms in the current path
+    private long[] codes; // packed atom sequence for processing
+    private boolean stray; // whether some atom has markers unknown to the grammar
+    private ArrayList<Atom> atoms; // atoms of the most recent parse, if stray
+    private int[] counts; // number of atoms of each type (see isSpecialCase)
+    private int[] histogram; // number of atoms of each type ID
+    private ArrayList<Atom> offendingAtoms; // list of atoms repeated more
+                                            // than 4x in any given parse
+    private int[] choice; // index of the current type for each word (see search)
+    private int[] starts; // position of the first atom of each word
+    private int[] marks; // trail height before each word was applied
+    private int[] trail; // stacked atoms linked to by later words
+    private int trailSize; // number of entries on the trail
+    private int[] live; // atoms of each type in the current prefix
+    private ArrayList<Type> walk; // current type sequence of the search
+    private long ordinal; // ordinal of the last type sequence searched
+    private ParseContext retry; // context for cancelling atoms of a search
+    private int[] charge; // balance of even and odd adjoints of each family
+    private int[] unmarked; // unmarked atoms of each family and adjoint parity
+    private int[] marked; // positions of the marked atoms (see balanced)
+    private int[] buckets; // marked atoms of each family, parity, and signature
+    private int[] touched; // buckets in use by the current check
+    private long pruned; // parses skipped by the counting pre-filter
+    private int[] positions; // positions of the atoms that may be cancelled
+    private int[] state; // stack node before each atom of the first attempt
+    private long[] nodeCode; // packed atom of each persistent stack node
+    private int[] nodeBelow; // node below each persistent stack node (or -1)
+    private int[] nodeDepth; // number of atoms on each persistent stack
+    private int nodes; // number of persistent stack nodes in use
+
+    // Return a new parse context for the given grammar; its buffers grow as
+    // needed and are reused by every later parse
+    public ParseContext(LambekGrammar lg)
+    {
+        g = lg;
+        stack = new Stack();
+        partner = new int[64];
+        length = 0;
+        codes = new long[64];
+        stray = false;
+        atoms = new ArrayList<Atom>();
+        counts = new int[g.getAtomList().length];
+        histogram = new int[g.getMapping().length];
+        offendingAtoms = new ArrayList<Atom>();
+        choice = new int[16];
+        starts = new int[17];
+        marks = new int[16];
+        trail = new int[64];
+        trailSize = 0;
+        live = new int[g.getAtomList().length];
+        walk = new ArrayList<Type>();
+        ordinal = -1;
+        retry = null;
+        charge = new int[g.getKernel().getFamilyCount()];
+        unmarked = new int[2 * charge.length];
+        marked = new int[64];
+        buckets = new int[2 * charge.length * g.getKernel().getSignatureCount()];
+        touched = new int[64];
+        pruned = 0;
+        positions = new int[64];
+        state = new int[65];
+        nodeCode = new long[64];
+        nodeBelow = new int[64];
+        nodeDepth = new int[64];
+        nodes = 0;
+    }
+
+    // Return list of links found by the most recent parse, in the order in
+    // which they were made
+    public ArrayList<Link> getLinks()
+    {
+        ArrayList<Link> links = new ArrayList<Link>();
+        for (int j = 0; j < length; j++)
+        {
+            if ((partner[j] >= 0) && (partner[j] < j))
+                links.add(new Link(partner[j], j));
+        }
+        return links;
+    }
+
+    // Return a copy of the link partner of each atom of the most recent parse
+    public int[] getPartners()
+    {
+        int[] partners = new int[length];
+        System.arraycopy(partner, 0, partners, 0, length);
+        return partners;
+    }
+
+    // Return packed atom sequence of the most recent parse (only the first
+    // getLength() codes are meaningful)
+    public long[] getCodes()
+    {
+        return codes;
+    }
+
+    // Return number of atoms in the most recent parse
+    public int getLength()
+    {
+        return length;
+    }
+
+    // Return the ordinal of the last type sequence examined by search
+    public long getOrdinal()
+    {
+        return ordinal;
+    }
+
+    // Return the number of parses this context has skipped because the
+    // counting pre-filter showed they must fail
+    public long getPruned()
+    {
+        if (retry == null)
+            return pruned;
+        return pruned + retry.getPruned();
+    }
+
+    // Return list of atom types found by the most recent call to isSpecialCase
+    public ArrayList<Atom> getOffendingAtoms()
+    {
+        return offendingAtoms;
+    }
+
+    // Main parsing engine; allocates nothing once the buffers are large enough
+    public boolean parse(ArrayList<Type> path)
+    {
+        // Flatten the path into the packed atom buffer and reset the links
+        length = 0;
+        for (int w = 0; w < path.size(); w++)
+        {
+            length += path.get(w).getLength();
+        }
+        if (codes.length < length)
+        {
+            codes = new long[2 * length];
+            partner = new int[2 * length];
+        }
+        long[] pool = g.getAtomPool();
+        int pos = 0;
+        stray = false;
+        for (int w = 0; w < path.size(); w++)
+        {
+            Type t = path.get(w);
+            if (t.getPackedOffset() >= 0)
+            {
+                System.arraycopy(pool, t.getPackedOffset(), codes, pos, t.getLength());
+                pos += t.getLength();
+            }
+            else
+            {
+                pos = pack(t, pos);
+            }
+        }
+        if (stray)
+        {
+            atoms.clear();
+            for (Type t: path)
+            {
+                atoms.addAll(t.getAtoms());
+            }
+            return reduceAtoms();
+        }
+        if (!balanced(-1))
+        {
+            pruned++;
+            return false;
+        }
+        return reduce();
+    }
+
+    // Perform the reductions of the atoms in the buffer, and return true if
+    // they leave exactly one atom unlinked, which is standalone
+    private boolean reduce()
+    {
+        for (int i = 0; i < length; i++)
+        {
+            partner[i] = -1;
+        }
+        stack.clear();
+        update(0, length);
+        return single();
+    }
+
+    // Perform the reductions of the atoms of the most recent parse as Atom
+    // objects, whose markers need not be known to the grammar, and return true
+    // if they leave exactly one atom unlinked, which is standalone
+    private boolean reduceAtoms()
+    {
+        ReductionKernel kernel = g.getKernel();
+        stack.clear();
+        for (int i = 0; i < length; i++)
+        {
+            partner[i] = -1;
+            int index1 = stack.top();
+            if ((index1 >= 0) && (kernel.reduces(atoms.get(index1), atoms.get(i))))
+            {
+                stack.pop();
+                partner[index1] = i;
+                partner[i] = index1;
+            }
+            else
+            {
+                stack.push(i);
+            }
+        }
+        return single();
+    }
+
+    // Return true if the reductions just performed leave exactly one atom
+    // unlinked, which is standalone
+    private boolean single()
+    {
+        // Find the unlinked atom, provided there is exactly one
+        int unlinked = -1;
+        for (int i = 0; i < length; i++)
+        {
+            if (partner[i] < 0)
+            {
+                if (unlinked >= 0)
+                    return false;
+                unlinked = i;
+            }
+        }
+        if (unlinked < 0)
+            return false;
+
+        // Determine whether unlinked atom is a standalone type
+        return g.getKernel().isStandalone(ReductionKernel.typeOf(codes[unlinked]));
+    }
+
+    // Pack the atoms of a type that is not in the grammar's atom pool (such as
+    // a type with cancelled atoms) into the buffer at pos; return the position
+    // after them. An atom whose markers the grammar does not know is packed
+    // as unmarked, and flagged as a stray so that the parse is decided on the
+    // Atom objects instead (see reduceAtoms)
+    private int pack(Type t, int pos)
+    {
+        ReductionKernel kernel = g.getKernel();
+        List<Atom> subset = t.getAtoms();
+        for (int i = 0; i < subset.size(); i++)
+        {
+            long code = kernel.encode(subset.get(i));
+            if (code == -1)
+            {
+                stray = true;
+                code = ReductionKernel.encode(g.getId(subset.get(i)),
+                                              subset.get(i).getAdjoint(), 0);
+            }
+            codes[pos++] = code;
+        }
+        return pos;
+    }
+
+    // Return true if every atom of the given type can be packed with its
+    // markers, false otherwise
+    private boolean packable(Type t)
+    {
+        if (t.getPackedOffset() >= 0)
+            return true;
+        for (Atom a: t.getAtoms())
+        {
+            if (g.getKernel().encode(a) == -1)
+                return false;
+        }
+        return true;
+    }
+
+    // Return true if the counts of the atoms of the most recent parse allow
+    // them to reduce to a single atom, after cancelling a pair of atoms of the
+    // given family (or none, if it is -1); false if the parse must fail. Each
+    // link joins an even and an odd adjoint of one family, and agreeing
+    // markers, so apart from the atom left over (and any cancelled pair) the
+    // even and odd adjoints of each family must balance, and each marked atom
+    // must have a distinct partner of the other parity whose markers agree
+    private boolean balanced(int cancel)
+    {
+        ReductionKernel kernel = g.getKernel();
+        for (int f = 0; f < charge.length; f++)
+        {
+            charge[f] = 0;
+            unmarked[2 * f] = 0;
+            unmarked[2 * f + 1] = 0;
+        }
+        if (marked.length < length)
+        {
+            marked = new int[2 * length];
+        }
+        int numMarked = 0;
+        for (int i = 0; i < length; i++)
+        {
+            int f = kernel.getFamily(ReductionKernel.typeOf(codes[i]));
+            int parity = ReductionKernel.adjointOf(codes[i]) & 1;
+            charge[f] += (parity == 0) ? 1 : -1;
+            if (ReductionKernel.signatureOf(codes[i]) == 0)
+                unmarked[2 * f + parity]++;
+            else
+                marked[numMarked++] = i;
+        }
+
+        // The charges must total 1 in absolute value; cancelling a pair moves
+        // a charge of -2, 0, or 2 from its family to that of the dummy
+        int total = 0;
+        for (int f = 0; f < charge.length; f++)
+        {
+            total += Math.abs(charge[f]);
+        }
+        if (cancel < 0)
+        {
+            if (total != 1)
+                return false;
+        }
+        else
+        {
+            int d = kernel.getFamily(g.getDummy().getId());
+            int rest = total - Math.abs(charge[cancel]) - Math.abs(charge[d]);
+            boolean possible = false;
+            for (int shift = -2; shift <= 2; shift += 2)
+            {
+                if (rest + Math.abs(charge[cancel] - shift) + Math.abs(charge[d] + shift) == 1)
+                    possible = true;
+            }
+            if (!possible)
+                return false;
+        }
+
+        // Count the marked atoms by family, adjoint parity, and signature
+        int numSignatures = kernel.getSignatureCount();
+        if (touched.length < numMarked)
+        {
+            touched = new int[2 * numMarked];
+        }
+        int numTouched = 0;
+        for (int i = 0; i < numMarked; i++)
+        {
+            long a = codes[marked[i]];
+            int f = kernel.getFamily(ReductionKernel.typeOf(a));
+            int parity = ReductionKernel.adjointOf(a) & 1;
+            int b = (2 * f + parity) * numSignatures + ReductionKernel.signatureOf(a);
+            if (buckets[b]++ == 0)
+                touched[numTouched++] = b;
+        }
+
+        // The marked atoms of one bucket need distinct partners of the other
+        // parity whose markers agree with theirs (unmarked atoms agree with
+        // all); one atom may be left over (three in the family of a cancelled
+        // pair, which may remove two). Each bucket is checked against the
+        // signatures of the other parity, so the check takes time linear in 
+        // the length of the path for a given inventory of signatures
+        boolean agree = true;
+        for (int i = 0; (i < numTouched) && (agree); i++)
+        {
+            int b = touched[i];
+            int signature = b % numSignatures;
+            int f = b / numSignatures / 2;
+            int parity = (b / numSignatures) & 1;
+            int opposite = (2 * f + 1 - parity) * numSignatures;
+            int partners = unmarked[2 * f + 1 - parity];
+            for (int s = 1; s < numSignatures; s++)
+            {
+                if ((buckets[opposite + s] > 0) && (kernel.compatible(signature, s)))
+                    partners += buckets[opposite + s];
+            }
+            if (buckets[b] > partners + ((f == cancel) ? 3 : 1))
+                agree = false;
+        }
+        for (int i = 0; i < numTouched; i++)
+        {
+            buckets[touched[i]] = 0;
+        }
+        return agree;
+    }
+
+    // Process the q atoms starting at position pos:
+    // perform reductions against the stack or push new atoms onto it
+    private void update(int pos, int q)
+    {
+        ReductionKernel kernel = g.getKernel();
+        for (int i = pos; i < pos + q; i++)
+        {
+            int index1 = stack.top();
+            if ((index1 >= 0) && (kernel.reduces(codes[index1], codes[i])))
+            {
+                stack.pop();
+                partner[index1] = i;
+                partner[i] = index1;
+            }
+            else
+            {
+                stack.push(i);
+            }
+        }
+    }
+
+    // Search the type sequences of the given words whose ordinals lie in
+    // [from, to), in the order of PathIterator, and return the first that
+    // parses (after cancelling atoms if need be); stop early once the ordinal
+    // reaches bound (if not null). The sequences are walked depth first, so
+    // the reductions for a prefix shared by many sequences are done once and
+    // undone from the trail when the search backtracks past it
+    public ParseResult search(ArrayList<ArrayList<Type>> words, long from, long to,
+                              AtomicLong bound)
+    {
+        int n = words.size();
+        long total = Math.min(to, PathIterator.countPaths(words));
+        ordinal = from - 1;
+        if (from >= total)
+            return ParseResult.failure();
+        for (ArrayList<Type> types: words)
+        {
+            for (Type t: types)
+            {
+                if (!(packable(t)))
+                    return searchPaths(words, from, total, bound);
+            }
+        }
+        reserve(words);
+
+        // Decode the first sequence, last word fastest
+        long rest = from;
+        for (int k = n - 1; k >= 0; k--)
+        {
+            int size = words.get(k).size();
+            choice[k] = (int) (rest % size);
+            rest /= size;
+        }
+        walk.clear();
+        for (int k = 0; k < n; k++)
+        {
+            walk.add(null);
+        }
+        for (int i = 0; i < live.length; i++)
+        {
+            live[i] = 0;
+        }
+        stack.clear();
+        trailSize = 0;
+        starts[0] = 0;
+
+        int k = 0; // number of words whose types have been applied
+        ReductionKernel kernel = g.getKernel();
+        while (true)
+        {
+            for (; k < n; k++)
+            {
+                apply(words, k);
+            }
+            if ((bound != null) && (ordinal + 1 >= bound.get()))
+                break;
+            ordinal++;
+            length = starts[n];
+
+            // A sequence parses if exactly one atom is left, and it is standalone
+            if ((stack.getHeight() == 1)
+                    && (kernel.isStandalone(ReductionKernel.typeOf(codes[stack.top()]))))
+                return new ParseResult(true, walk, getLinks(), false);
+            if (frequent())
+            {
+                if (retry == null)
+                    retry = new ParseContext(g);
+                retry.load(codes, length);
+                if ((retry.isSpecialCase()) && (retry.redo()))
+                    return new ParseResult(true, walk, retry.getLinks(), true);
+            }
+
+            // Advance to the next sequence, backtracking over the words that change
+            if (ordinal + 1 >= total)
+                break;
+            k = n - 1;
+            while (choice[k] == words.get(k).size() - 1)
+            {
+                undo(k);
+                choice[k] = 0;
+                k--;
+            }
+            undo(k);
+            choice[k]++;
+        }
+        return ParseResult.failure();
+    }
+
+    // Search as above, but parse each type sequence from scratch; used when
+    // some type has markers unknown to the grammar, whose reductions cannot
+    // be done on packed atoms
+    private ParseResult searchPaths(ArrayList<ArrayList<Type>> words, long from,
+                                    long total, AtomicLong bound)
+    {
+        int n = words.size();
+        for (long p = from; p < total; p++)
+        {
+            if ((bound != null) && (p >= bound.get()))
+                break;
+            ordinal = p;
+            ArrayList<Type> path = new ArrayList<Type>(n);
+            long rest = p;
+            for (int k = n - 1; k >= 0; k--)
+            {
+                int size = words.get(k).size();
+                path.add(words.get(k).get((int) (rest % size)));
+                rest /= size;
+            }
+            Collections.reverse(path);
+            if (parse(path))
+                return new ParseResult(true, path, getLinks(), false);
+            if ((isSpecialCase()) && (redo()))
+                return new ParseResult(true, path, getLinks(), true);
+        }
+        return ParseResult.failure();
+    }
+
+    // Make the buffers large enough for the longest sequence of the given words
+    private void reserve(ArrayList<ArrayList<Type>> words)
+    {
+        int n = words.size();
+        int longest = 0;
+        for (ArrayList<Type> types: words)
+        {
+            int most = 0;
+            for (Type t: types)
+            {
+                most = Math.max(most, t.getLength());
+            }
+            longest += most;
+        }
+        if (codes.length < longest)
+        {
+            codes = new long[2 * longest];
+            partner = new int[2 * longest];
+        }
+        if (trail.length < longest)
+        {
+            trail = new int[2 * longest];
+        }
+        if (choice.length < n)
+        {
+            choice = new int[2 * n];
+            starts = new int[2 * n + 1];
+            marks = new int[2 * n];
+        }
+    }
+
+    // Apply the chosen type of word k to the reductions of the words before it
+    private void apply(ArrayList<ArrayList<Type>> words, int k)
+    {
+        Type t = words.get(k).get(choice[k]);
+        walk.set(k, t);
+        int pos = starts[k];
+        int end = pos + t.getLength();
+        if (t.getPackedOffset() >= 0)
+            System.arraycopy(g.getAtomPool(), t.getPackedOffset(), codes, pos, t.getLength());
+        else
+            pack(t, pos);
+        starts[k + 1] = end;
+        marks[k] = trailSize;
+
+        boolean[][] mappings = g.getMapping();
+        ReductionKernel kernel = g.getKernel();
+        for (int i = pos; i < end; i++)
+        {
+            partner[i] = -1;
+            int type = ReductionKernel.typeOf(codes[i]);
+            for (int j = 0; j < live.length; j++)
+            {
+                if (mappings[type][j])
+                    live[j]++;
+            }
+            int index1 = stack.top();
+            if ((index1 >= 0) && (kernel.reduces(codes[index1], codes[i])))
+            {
+                stack.pop();
+                partner[index1] = i;
+                partner[i] = index1;
+                if (index1 < pos)
+                    trail[trailSize++] = index1;
+            }
+            else
+            {
+                stack.push(i);
+            }
+        }
+    }
+
+    // Undo the application of word k, which must be the last word applied
+    private void undo(int k)
+    {
+        int pos = starts[k];
+        while ((stack.getHeight() > 0) && (stack.top() >= pos))
+        {
+            stack.pop();
+        }
+        while (trailSize > marks[k])
+        {
+            int index = trail[--trailSize];
+            partner[index] = -1;
+            stack.push(index);
+        }
+        boolean[][] mappings = g.getMapping();
+        for (int i = pos; i < starts[k + 1]; i++)
+        {
+            int type = ReductionKernel.typeOf(codes[i]);
+            for (int j = 0; j < live.length; j++)
+            {
+                if (mappings[type][j])
+                    live[j]--;
+            }
+        }
+    }
+
+    // Return true if some atom type occurs 4 or more times in the current
+    // sequence of the search, false otherwise
+    private boolean frequent()
+    {
+        for (int i = 0; i < live.length; i++)
+        {
+            if (live[i] >= 4)
+                return true;
+        }
+        return false;
+    }
+
+    // Take the given packed atoms as those of the most recent parse
+    private void load(long[] source, int size)
+    {
+        if (codes.length < size)
+        {
+            codes = new long[2 * size];
+            partner = new int[2 * size];
+        }
+        System.arraycopy(source, 0, codes, 0, size);
+        length = size;
+        stray = false;
+    }
+
+    // Return true if the atoms of the most recent parse contain a simple type
+    // that occurs 4 or more times (taking reduction rules into account), false
+    // otherwise; the types are found in one pass over the atoms
+    public boolean isSpecialCase()
+    {
+        boolean[][] mappings = g.getMapping();
+        offendingAtoms.clear();
+        for (int t = 0; t < histogram.length; t++)
+        {
+            histogram[t] = 0;
+        }
+        for (int j = 0; j < length; j++)
+        {
+            histogram[ReductionKernel.typeOf(codes[j])]++;
+        }
+
+        // Determine number of atoms of each type (accounting for reduction rules)
+        for (int i = 0; i < counts.length; i++)
+        {
+            counts[i] = 0;
+            for (int t = 0; t < histogram.length; t++)
+            {
+                if ((histogram[t] > 0) && (mappings[t][i]))
+                    counts[i] += histogram[t];
+            }
+            if (counts[i] >= 4)
+                offendingAtoms.add(g.getAtomList()[i]);
+        }
+        return offendingAtoms.size() > 0;
+    }
+
+    // Systematically cancel pairs of atoms of each offending type in turn
+    // (see isSpecialCase), replacing them by dummy atoms, until the atoms of
+    // the most recent parse reduce; return true if they do, with the links of
+    // that reduction. The pairs are the positions (p, q), p before q, of
+    // atoms of the offending type, tried by p and then by q, both in order of
+    // position. A pair whose cancellation cannot balance the atoms (see
+    // balanced) is skipped, and the reductions before a cancelled atom are
+    // not repeated: the stack is persistent, so each pair resumes from the
+    // stack the first attempt had just before its first atom, and the pairs
+    // sharing a first atom share the reductions up to their second. If some
+    // atom has markers unknown to the grammar, the pairs are cancelled in the
+    // same order on the Atom objects instead (see redoAtoms)
+    public boolean redo()
+    {
+        if (stray)
+            return redoAtoms();
+        ReductionKernel kernel = g.getKernel();
+        boolean[][] mappings = g.getMapping();
+        int n = length;
+        if (positions.length < n)
+        {
+            positions = new int[2 * n];
+        }
+        if (state.length < n + 1)
+        {
+            state = new int[2 * n + 1];
+        }
+
+        // Replay the first attempt, recording the stack before each atom
+        nodes = 0;
+        int top = -1;
+        for (int j = 0; j < n; j++)
+        {
+            state[j] = top;
+            top = step(top, codes[j]);
+        }
+
+        int dummy = g.getDummy().getId();
+        int d = kernel.getFamily(dummy);
+        for (Atom offendingAtom: offendingAtoms)
+        {
+            int offendingId = g.getId(offendingAtom);
+            int f = kernel.getFamily(offendingId);
+            if (!balanced(f))
+            {
+                pruned++;
+                continue;
+            }
+            int rest = 0; // charge of the families a cancellation leaves alone
+            for (int i = 0; i < charge.length; i++)
+            {
+                if ((i != f) && (i != d))
+                    rest += Math.abs(charge[i]);
+            }
+
+            // Determine positions at which the repeated atoms occur
+            int k = 0;
+            for (int j = 0; j < n; j++)
+            {
+                if (mappings[ReductionKernel.typeOf(codes[j])][offendingId])
+                    positions[k++] = j;
+            }
+
+            // "Cancel" each possible pair in turn and attempt a new parse
+            for (int a = 0; a < k; a++)
+            {
+                int p = positions[a];
+                int first = nodes;
+                int shared = step(state[p], cancelled(dummy, codes[p]));
+                int next = p + 1;
+                for (int b = a + 1; b < k; b++)
+                {
+                    int q = positions[b];
+                    for (; next < q; next++)
+                    {
+                        shared = step(shared, codes[next]);
+                    }
+                    int shift = sign(codes[p]) + sign(codes[q]);
+                    if (rest + Math.abs(charge[f] - shift) + Math.abs(charge[d] + shift) != 1)
+                    {
+                        pruned++;
+                        continue;
+                    }
+                    int second = nodes;
+                    int last = step(shared, cancelled(dummy, codes[q]));
+                    for (int j = q + 1; j < n; j++)
+                    {
+                        last = step(last, codes[j]);
+                    }
+                    if ((last >= 0) && (nodeDepth[last] == 1)
+                            && (kernel.isStandalone(ReductionKernel.typeOf(nodeCode[last]))))
+                    {
+                        // Parse the winning cancellation again for its links
+                        codes[p] = cancelled(dummy, codes[p]);
+                        codes[q] = cancelled(dummy, codes[q]);
+                        boolean parsed = reduce();
+                        assert(parsed):"Cancelled atoms do not reduce on reparsing.";
+                        return true;
+                    }
+                    nodes = second;
+                }
+                nodes = first;
+            }
+        }
+        return false;
+    }
+
+    // Cancel pairs of atoms of each offending type in the order of redo, but
+    // reparse the Atom objects of the most recent parse for each pair; return
+    // true if some cancellation reduces, with the links of that reduction
+    private boolean redoAtoms()
+    {
+        boolean[][] mappings = g.getMapping();
+        Atom dummy = g.getDummy();
+        if (positions.length < length)
+        {
+            positions = new int[2 * length];
+        }
+        for (Atom offendingAtom: offendingAtoms)
+        {
+            int offendingId = g.getId(offendingAtom);
+
+            // Determine positions at which the repeated atoms occur
+            int k = 0;
+            for (int j = 0; j < length; j++)
+            {
+                if (mappings[ReductionKernel.typeOf(codes[j])][offendingId])
+                    positions[k++] = j;
+            }
+
+            // "Cancel" each possible pair in turn and attempt a new parse
+            for (int a = 0; a < k; a++)
+            {
+                int p = positions[a];
+                Atom atom1 = atoms.get(p);
+                long code1 = codes[p];
+                atoms.set(p, dummy.withAdjoint(atom1.getAdjoint()));
+                codes[p] = cancelled(dummy.getId(), code1);
+                for (int b = a + 1; b < k; b++)
+                {
+                    int q = positions[b];
+                    Atom atom2 = atoms.get(q);
+                    long code2 = codes[q];
+                    atoms.set(q, dummy.withAdjoint(atom2.getAdjoint()));
+                    codes[q] = cancelled(dummy.getId(), code2);
+                    if (reduceAtoms())
+                        return true;
+                    atoms.set(q, atom2);
+                    codes[q] = code2;
+                }
+                atoms.set(p, atom1);
+                codes[p] = code1;
+            }
+        }
+        return false;
+    }
+
+    // Return the persistent stack that results from processing an atom after
+    // the given stack (-1 if empty): the top atom is popped if it reduces
+    // with the new atom, which is pushed otherwise
+    private int step(int top, long code)
+    {
+        if ((top >= 0) && (g.getKernel().reduces(nodeCode[top], code)))
+            return nodeBelow[top];
+        if (nodes == nodeCode.length)
+        {
+            nodeCode = Arrays.copyOf(nodeCode, 2 * nodes);
+            nodeBelow = Arrays.copyOf(nodeBelow, 2 * nodes);
+            nodeDepth = Arrays.copyOf(nodeDepth, 2 * nodes);
+        }
+        nodeCode[nodes] = code;
+        nodeBelow[nodes] = top;
+        nodeDepth[nodes] = (top < 0) ? 1 : nodeDepth[top] + 1;
+        return nodes++;
+    }
+
+    // Return the packed dummy atom that takes the place of a cancelled atom
+    private static long cancelled(int dummy, long code)
+    {
+        return ReductionKernel.encode(dummy, ReductionKernel.adjointOf(code), 0);
+    }
+
+    // Return the charge of an atom: 1 for an even adjoint, -1 for an odd one
+    private static int sign(long code)
+    {
+        return ((ReductionKernel.adjointOf(code) & 1) == 0) ? 1 : -1;
+    }
+}
@@ -0,0 +1,163 @@
+/*****************************************************************************
+  * ParseResult.java
+  * Author: Olivia Waring
+  * Represents the immutable outcome of parsing a sentence: whether it is
+  * grammatical, the type chosen for each word, the links found, and how
+  * deeply those links are nested
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ParseResult
+{
+    private final boolean grammatical; // whether the sentence parsed
+    private final List<Type> path; // type chosen for each word
+    private final List<Link> links; // links between atoms of the path
+    private final boolean retried; // whether atoms had to be cancelled
+    private final int[] partners; // atom linked to each atom (or -1)
+    private final int[] linkDepths; // nesting depth of each link
+    private final int nesting; // greatest nesting depth of the links
+    private static final ParseResult FAILURE = new ParseResult(false,
+        new ArrayList<Type>(), new ArrayList<Link>()); // shared failed result
+
+    // Return a new result with the given outcome, path, and links
+    public ParseResult(boolean parsed, ArrayList<Type> types, ArrayList<Link> linkList)
+    {
+        this(parsed, types, linkList, false);
+    }
+
+    // Return a new result with the given outcome, path, and links, noting
+    // whether the parse needed pairs of atoms to be cancelled
+    public ParseResult(boolean parsed, ArrayList<Type> types, ArrayList<Link> linkList,
+                       boolean cancelled)
+    {
+        grammatical = parsed;
+        path = Collections.unmodifiableList(new ArrayList<Type>(types));
+        links = Collections.unmodifiableList(new ArrayList<Link>(linkList));
+        retried = cancelled;
+        int length = 0;
+        for (Type t: types)
+        {
+            length += t.getLength();
+        }
+        partners = new int[length];
+        for (int i = 0; i < length; i++)
+        {
+            partners[i] = -1;
+        }
+        for (Link l: linkList)
+        {
+            partners[l.getNode1()] = l.getNode2();
+            partners[l.getNode2()] = l.getNode1();
+        }
+
+        // Scan the atoms once, keeping the links open at each atom on a
+        // stack: a link is as deep as the stack is high once it opens
+        int[] depthAt = new int[length]; // depth of the link opened at each atom
+        Stack open = new Stack();
+        int deepest = 0;
+        for (int i = 0; i < length; i++)
+        {
+            int j = partners[i];
+            if ((j >= 0) && (j < i) && (open.top() == j))
+                open.pop();
+            else if (j >= 0)
+            {
+                open.push(i);
+                depthAt[i] = open.getHeight();
+                deepest = Math.max(deepest, depthAt[i]);
+            }
+        }
+        nesting = deepest;
+        linkDepths = new int[linkList.size()];
+        for (int k = 0; k < linkDepths.length; k++)
+        {
+            Link l = linkList.get(k);
+            linkDepths[k] = depthAt[Math.min(l.getNode1(), l.getNode2())];
+        }
+    }
+
+    // Return a result for a sentence that could not be parsed
+    public static ParseResult failure()
+    {
+        return FAILURE;
+    }
+
+    // Return true if the sentence is grammatical, false otherwise
+    public boolean isGrammatical()
+    {
+        return grammatical;
+    }
+
+    // Return true if the parse succeeded only after cancelling atoms
+    public boolean isRetry()
+    {
+        return retried;
+    }
+
+    // Return the type chosen for each word
+    public List<Type> getPath()
+    {
+        return path;
+    }
+
+    // Return the links between atoms of the path
+    public List<Link> getLinks()
+    {
+        return links;
+    }
+
+    // Return the index of the atom linked to each atom of the path (or -1 for
+    // an unlinked atom)
+    public int[] getPartners()
+    {
+        return partners.clone();
+    }
+
+    // Return the greatest nesting depth of the links (0 if there are none)
+    public int getNesting()
+    {
+        return nesting;
+    }
+
+    // Return the nesting depth of each link, in the order of getLinks; a link
+    // enclosed by no other has depth 1
+    public int[] getLinkDepths()
+    {
+        return linkDepths.clone();
+    }
+
+    // Return the mean nesting depth of the links (0 if there are none)
+    public double getAverageNesting()
+    {
+        if (linkDepths.length == 0)
+            return 0;
+        long total = 0;
+        for (int d: linkDepths)
+        {
+            total += d;
+        }
+        return (double) total / linkDepths.length;
+    }
+
+    // Return string representation of the result
+    public String toString()
+    {
+        if (!grammatical)
+            return "No solution.";
+        String resultString = "";
+        int i;
+        for (i = 0; i < path.size()-1; i++)
+        {
+            resultString += path.get(i).toString() + ", ";
+        }
+        resultString += path.get(i).toString() + "\n";
+        for (Link l: links)
+        {
+            resultString += l.toString() + " ";
+        }
+        return resultString;
+    }
+}
@@ -0,0 +1,98 @@
+/*****************************************************************************
+  * ParseStatistics.java
+  * Author: Olivia Waring
+  * Accumulates counters describing the work done by the parser, safely across
+  * threads, for reporting at the end of a run
+  *****************************************************************************/
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ParseStatistics
+{
+    private LongAdder paths; // number of type sequences parsed
+    private LongAdder pathBytes; // bytes allocated while parsing them
+    private LongAdder pruned; // parses skipped by the counting pre-filter
+    private LongAdder filtered; // type sequences removed by filtering types
+    private static final java.lang.management.ThreadMXBean threadBean =
+        ManagementFactory.getThreadMXBean(); // source of allocation counts
+
+    // Return a new, empty set of counters
+    public ParseStatistics()
+    {
+        paths = new LongAdder();
+        pathBytes = new LongAdder();
+        pruned = new LongAdder();
+        filtered = new LongAdder();
+    }
+
+    // Return the number of bytes allocated so far by the current thread, or
+    // -1 if the Java runtime does not measure allocation
+    public static long allocatedBytes()
+    {
+        if (threadBean instanceof com.sun.management.ThreadMXBean)
+        {
+            return ((com.sun.management.ThreadMXBean) threadBean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    // Record that a number of type sequences were parsed while the current
+    // thread's allocation count went from before to after
+    public void recordPaths(long count, long before, long after)
+    {
+        paths.add(count);
+        if ((before >= 0) && (after >= 0))
+            pathBytes.add(after - before);
+    }
+
+    // Record that a number of parses were skipped by the counting pre-filter
+    public void recordPruned(long count)
+    {
+        pruned.add(count);
+    }
+
+    // Return number of parses skipped by the counting pre-filter
+    public long getPruned()
+    {
+        return pruned.sum();
+    }
+
+    // Record that filtering the types of a sentence removed a number of
+    // type sequences
+    public void recordFiltered(long count)
+    {
+        filtered.add(count);
+    }
+
+    // Return number of type sequences removed by filtering types
+    public long getFiltered()
+    {
+        return filtered.sum();
+    }
+
+    // Return number of type sequences parsed
+    public long getPaths()
+    {
+        return paths.sum();
+    }
+
+    // Return mean number of bytes allocated per type sequence parsed
+    public double getBytesPerPath()
+    {
+        long count = paths.sum();
+        if (count == 0)
+            return 0;
+        return (double) pathBytes.sum() / count;
+    }
+
+    // Return string representation of the counters
+    public String toString()
+    {
+        return "Paths parsed: " + getPaths() + "\n"
+            + "Bytes allocated per path: " + getBytesPerPath() + "\n"
+            + "Parses pruned: " + getPruned() + "\n"
+            + "Paths filtered out: " + getFiltered();
+    }
+}
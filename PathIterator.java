@@ -0,0 +1,120 @@
+/*****************************************************************************
+  * PathIterator.java
+  * Author: Olivia Waring
+  * Enumerates the possible type sequences of a sentence one at a time, the
+  * last word's type changing fastest, without building them all at once
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class PathIterator implements Iterator<ArrayList<Type>>
+{
+    private ArrayList<ArrayList<Type>> words; // candidate types for each word
+    private int[] choice; // index of the current type for each word
+    private ArrayList<Type> path; // current type sequence (updated in place)
+    private long index; // ordinal of the current type sequence
+    private long start; // ordinal of the first type sequence to return
+    private long total; // ordinal after the last type sequence to return
+
+    // Return a new iterator over every type sequence for the given words
+    public PathIterator(ArrayList<ArrayList<Type>> typeLists)
+    {
+        this(typeLists, 0, Long.MAX_VALUE);
+    }
+
+    // Return a new iterator over the type sequences whose ordinals lie in
+    // [from, to), for the given words
+    public PathIterator(ArrayList<ArrayList<Type>> typeLists, long from, long to)
+    {
+        words = typeLists;
+        choice = new int[words.size()];
+        path = new ArrayList<Type>(words.size());
+        total = Math.min(to, countPaths(words));
+        start = from;
+        index = from - 1;
+    }
+
+    // Return the number of type sequences for the given words (saturating at
+    // Long.MAX_VALUE)
+    public static long countPaths(ArrayList<ArrayList<Type>> typeLists)
+    {
+        if (typeLists.size() == 0)
+            return 0;
+        long count = 1;
+        for (ArrayList<Type> types: typeLists)
+        {
+            if (types.size() == 0)
+                return 0;
+            if (count > Long.MAX_VALUE / types.size())
+                return Long.MAX_VALUE;
+            count *= types.size();
+        }
+        return count;
+    }
+
+    // Return true if another type sequence remains, false otherwise
+    public boolean hasNext()
+    {
+        return index + 1 < total;
+    }
+
+    // Return the next type sequence; the list is reused by later calls, so it
+    // must be copied if it is to be kept
+    public ArrayList<Type> next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        // First sequence: decode the starting ordinal, last word fastest
+        if (index < start)
+        {
+            long ordinal = start;
+            for (int k = choice.length - 1; k >= 0; k--)
+            {
+                int size = words.get(k).size();
+                choice[k] = (int) (ordinal % size);
+                ordinal /= size;
+            }
+            for (int k = 0; k < choice.length; k++)
+            {
+                path.add(words.get(k).get(choice[k]));
+            }
+        }
+
+        // Later sequences: advance the last word first, carrying leftwards
+        else
+        {
+            int k = choice.length - 1;
+            while (choice[k] == words.get(k).size() - 1)
+            {
+                choice[k] = 0;
+                path.set(k, words.get(k).get(0));
+                k--;
+            }
+            choice[k]++;
+            path.set(k, words.get(k).get(choice[k]));
+        }
+        index++;
+        return path;
+    }
+
+    // Return the ordinal of the most recently returned type sequence
+    public long getIndex()
+    {
+        return index;
+    }
+
+    // Return the ordinal after the last type sequence to be returned
+    public long getTotal()
+    {
+        return total;
+    }
+
+    // Removal is not supported
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+}
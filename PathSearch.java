@@ -0,0 +1,91 @@
+/*****************************************************************************
+  * PathSearch.java
+  * Author: Olivia Waring
+  * Tries the type sequences of one sentence in parallel, splitting them into
+  * ranges of ordinals; the lowest-numbered sequence that parses wins, and any
+  * range lying wholly above it is abandoned as soon as it is found
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PathSearch extends RecursiveAction
+{
+    private static final long serialVersionUID = 1L;
+    private PathSearch root; // task holding the state shared by the search
+    private PregroupParser parser; // stack-based parser
+    private ArrayList<ArrayList<Type>> words; // candidate types for each word
+    private long from; // first ordinal of this task's range
+    private long to; // ordinal after the end of this task's range
+    private long grain; // largest range searched without splitting
+    private AtomicLong best; // lowest ordinal known to parse (root only)
+    private ParseResult winner; // result for that ordinal (root only)
+
+    // Return a new search over every type sequence of the given words
+    public PathSearch(PregroupParser p, ArrayList<ArrayList<Type>> typeLists, long size)
+    {
+        root = this;
+        parser = p;
+        words = typeLists;
+        from = 0;
+        to = PathIterator.countPaths(words);
+        grain = Math.max(1, size);
+        best = new AtomicLong(Long.MAX_VALUE);
+        winner = null;
+    }
+
+    // Return a new search over part of the range of a parent search
+    private PathSearch(PathSearch parent, long lo, long hi)
+    {
+        root = parent.root;
+        parser = parent.parser;
+        words = parent.words;
+        from = lo;
+        to = hi;
+        grain = parent.grain;
+    }
+
+    // Search this task's range, splitting it first if it is too large
+    protected void compute()
+    {
+        if (from >= root.best.get())
+            return; // a lower-numbered sequence has already parsed
+        if (to - from > grain)
+        {
+            long mid = from + (to - from) / 2;
+            invokeAll(new PathSearch(this, from, mid), new PathSearch(this, mid, to));
+            return;
+        }
+        ParseContext context = parser.getContext();
+        ParseStatistics stats = parser.getStatistics();
+        long before = (stats == null) ? -1 : ParseStatistics.allocatedBytes();
+        long skipped = context.getPruned();
+        ParseResult result = context.search(words, from, to, root.best);
+        if (result.isGrammatical())
+            root.offer(context.getOrdinal(), result);
+        if (stats != null)
+        {
+            stats.recordPaths(context.getOrdinal() + 1 - from, before, ParseStatistics.allocatedBytes());
+            stats.recordPruned(context.getPruned() - skipped);
+        }
+    }
+
+    // Record a successful parse if it is the lowest-numbered one so far
+    private synchronized void offer(long ordinal, ParseResult result)
+    {
+        if (ordinal < best.get())
+        {
+            best.set(ordinal);
+            winner = result;
+        }
+    }
+
+    // Return the result of the completed search
+    public synchronized ParseResult getResult()
+    {
+        if (winner == null)
+            return ParseResult.failure();
+        return winner;
+    }
+}
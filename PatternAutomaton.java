@@ -0,0 +1,121 @@
+/*****************************************************************************
+  * PatternAutomaton.java
+  * Author: Olivia Waring
+  * Holds a list of patterns in an Aho-Corasick automaton, so that every
+  * pattern of the list occurring anywhere in a word is found in one forward
+  * scan of the word
+  *****************************************************************************/
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class PatternAutomaton
+{
+    private HashMap<Long,Integer> children; // child of each node for each character
+    private ArrayList<Character> labels; // character leading to each node
+    private ArrayList<Integer> parents; // parent of each node
+    private ArrayList<ArrayList<Integer>> kids; // children of each node
+    private int[] fail; // longest proper suffix of each node that is a node
+    private ArrayList<ArrayList<Integer>> outputs; // patterns ending at each node
+
+    // Return a new automaton for the given patterns, numbered in list order
+    public PatternAutomaton(ArrayList<String> patterns)
+    {
+        children = new HashMap<Long,Integer>();
+        labels = new ArrayList<Character>();
+        parents = new ArrayList<Integer>();
+        kids = new ArrayList<ArrayList<Integer>>();
+        outputs = new ArrayList<ArrayList<Integer>>();
+        addNode(-1, '\0');
+        for (int i = 0; i < patterns.size(); i++)
+        {
+            String s = patterns.get(i);
+            int node = 0;
+            for (int p = 0; p < s.length(); p++)
+            {
+                Integer child = children.get(key(node, s.charAt(p)));
+                if (child == null)
+                {
+                    child = addNode(node, s.charAt(p));
+                    children.put(key(node, s.charAt(p)), child);
+                }
+                node = child;
+            }
+            outputs.get(node).add(i);
+        }
+
+        // Compute failure links breadth first, merging the outputs of each
+        // node's failure node into its own
+        fail = new int[labels.size()];
+        ArrayDeque<Integer> queue = new ArrayDeque<Integer>(kids.get(0));
+        while (!queue.isEmpty())
+        {
+            int n = queue.poll();
+            int parent = parents.get(n);
+            if (parent != 0)
+                fail[n] = step(fail[parent], labels.get(n));
+            outputs.get(n).addAll(outputs.get(fail[n]));
+            queue.addAll(kids.get(n));
+        }
+    }
+
+    // Add a node reached from parent by the given character; return its number
+    private int addNode(int parent, char c)
+    {
+        labels.add(c);
+        parents.add(parent);
+        kids.add(new ArrayList<Integer>());
+        outputs.add(new ArrayList<Integer>());
+        int node = labels.size() - 1;
+        if (parent >= 0)
+            kids.get(parent).add(node);
+        return node;
+    }
+
+    // Return the key of the child of a node for a character
+    private static long key(int node, char c)
+    {
+        return ((long) node << 16) | c;
+    }
+
+    // Return the node reached from node by reading the given character
+    private int step(int node, char c)
+    {
+        while (true)
+        {
+            Integer child = children.get(key(node, c));
+            if (child != null)
+                return child;
+            if (node == 0)
+                return 0;
+            node = fail[node];
+        }
+    }
+
+    // Return the number (in list order) of the first pattern numbered from or
+    // later that occurs in the word, or -1 if none does
+    public int match(CharSequence word, int from)
+    {
+        int best = first(outputs.get(0), from, -1);
+        int node = 0;
+        for (int p = 0; p < word.length(); p++)
+        {
+            node = step(node, word.charAt(p));
+            best = first(outputs.get(node), from, best);
+        }
+        return best;
+    }
+
+    // Return the smaller of best (unless it is -1) and the least of the
+    // patterns that is at least from
+    private static int first(ArrayList<Integer> here, int from, int best)
+    {
+        for (int i: here)
+        {
+            if ((i >= from) && ((best < 0) || (i < best)))
+                best = i;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,104 @@
+/*****************************************************************************
+  * PregroupParser.java
+  * Author: Olivia Waring
+  * Runs the stack-based pregroup parsing algorithm against a shared Lambek
+  * Grammar; each thread parses in its own ParseContext, so one parser may be
+  * used from many threads at once
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+public class PregroupParser
+{
+    private LambekGrammar g; // representation of a Lambek Grammar
+    private ThreadLocal<ParseContext> contexts; // scratch context of each thread
+    private ParseStatistics stats; // counters to update (or null)
+
+    // Return a new parser for the given grammar
+    public PregroupParser(LambekGrammar lg)
+    {
+        g = lg;
+        contexts = new ThreadLocal<ParseContext>();
+        stats = null;
+    }
+
+    // Keep the given counters up to date while parsing
+    public void setStatistics(ParseStatistics ps)
+    {
+        stats = ps;
+    }
+
+    // Return the counters kept up to date while parsing (or null)
+    public ParseStatistics getStatistics()
+    {
+        return stats;
+    }
+
+    // Return the current thread's parse context, whose buffers are reused
+    // across paths and sentences
+    public ParseContext getContext()
+    {
+        ParseContext context = contexts.get();
+        if (context == null)
+        {
+            context = new ParseContext(g);
+            contexts.set(context);
+        }
+        return context;
+    }
+
+    // Return the grammar this parser works with
+    public LambekGrammar getGrammar()
+    {
+        return g;
+    }
+
+    // Parse a sentence given the candidate types of each word, trying each
+    // type sequence in turn until one succeeds
+    public ParseResult parse(ArrayList<ArrayList<Type>> words)
+    {
+        ParseContext context = getContext();
+        long before = (stats == null) ? -1 : ParseStatistics.allocatedBytes();
+        long skipped = context.getPruned();
+        ParseResult result = context.search(words, 0, Long.MAX_VALUE, null);
+        if (stats != null)
+        {
+            stats.recordPaths(context.getOrdinal() + 1, before, ParseStatistics.allocatedBytes());
+            stats.recordPruned(context.getPruned() - skipped);
+        }
+        return result;
+    }
+
+    // Parse a sentence given the candidate types of each word, trying ranges
+    // of type sequences in parallel on the given pool; the result is the same
+    // as that of the serial search
+    public ParseResult parse(ArrayList<ArrayList<Type>> words, ForkJoinPool pool)
+    {
+        long count = PathIterator.countPaths(words);
+        long grain = Math.max(16, count / (pool.getParallelism() * 8L));
+        if (count <= grain)
+            return parse(words);
+        PathSearch search = new PathSearch(this, words, grain);
+        pool.invoke(search);
+        return search.getResult();
+    }
+
+    // Parse a single type sequence
+    public ParseResult parsePath(ArrayList<Type> path)
+    {
+        return parsePath(path, getContext());
+    }
+
+    // Parse a single type sequence in the given context: if the first attempt
+    // fails and the path contains high-frequency atom types, cancel pairs of
+    // them and try again
+    public ParseResult parsePath(ArrayList<Type> path, ParseContext context)
+    {
+        if (context.parse(path))
+            return new ParseResult(true, path, context.getLinks(), false);
+        if ((context.isSpecialCase()) && (context.redo()))
+            return new ParseResult(true, path, context.getLinks(), true);
+        return ParseResult.failure();
+    }
+}
@@ -0,0 +1,228 @@
+/*****************************************************************************
+  * ReductionKernel.java
+  * Author: Olivia Waring
+  * Precompiles the reduction rules, the dummy rule, and marker compatibility
+  * of a Lambek Grammar into bit matrices, so that deciding whether two atoms
+  * can be linked takes constant time
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReductionKernel
+{
+    private LambekGrammar g; // grammar the kernel was compiled from
+    private int numTypes; // number of atom type IDs (including the dummy)
+    private int typeWords; // 64-bit words per row of the type matrix
+    private long[] typeBits; // types that may link, in either rule direction
+    private int numSignatures; // number of marker signatures
+    private int signatureWords; // 64-bit words per row of the marker matrix
+    private long[] markerBits; // marker signatures compatible from left to right
+    private boolean[] standalone; // types that may be left over after a parse
+    private int[] family; // family of each type (types that may link, transitively)
+    private int numFamilies; // number of families
+
+    // Return a new kernel compiled from the given grammar
+    public ReductionKernel(LambekGrammar lg)
+    {
+        g = lg;
+        boolean[][] mappings = g.getMapping();
+        int dummy = g.getDummy().getId();
+        numTypes = mappings.length;
+        typeWords = (numTypes + 63) >>> 6;
+        typeBits = new long[numTypes * typeWords];
+
+        // Two types may link if a reduction rule relates them in either
+        // direction, unless exactly one of them is the dummy
+        for (int i = 0; i < numTypes; i++)
+        {
+            for (int j = 0; j < numTypes; j++)
+            {
+                if (((mappings[i][j]) || (mappings[j][i]))
+                        && ((i == dummy) == (j == dummy)))
+                {
+                    typeBits[i * typeWords + (j >>> 6)] |= 1L << j;
+                }
+            }
+        }
+
+        // Group the types into families, the connected components of the
+        // linkable relation; every link joins two atoms of one family
+        family = new int[numTypes];
+        for (int i = 0; i < numTypes; i++)
+        {
+            family[i] = -1;
+        }
+        numFamilies = 0;
+        int[] pending = new int[numTypes];
+        for (int i = 0; i < numTypes; i++)
+        {
+            if (family[i] >= 0)
+                continue;
+            int size = 0;
+            family[i] = numFamilies;
+            pending[size++] = i;
+            while (size > 0)
+            {
+                int t = pending[--size];
+                for (int j = 0; j < numTypes; j++)
+                {
+                    if ((family[j] < 0) && (linkable(t, j)))
+                    {
+                        family[j] = numFamilies;
+                        pending[size++] = j;
+                    }
+                }
+            }
+            numFamilies++;
+        }
+
+        // A type may be left over if it is, or reduces to, a standalone type
+        standalone = new boolean[numTypes];
+        for (Atom a: g.getStandalones())
+        {
+            int s = g.getId(a);
+            for (int i = 0; i < numTypes; i++)
+            {
+                if ((i == s) || (mappings[i][s]))
+                    standalone[i] = true;
+            }
+        }
+
+        // Marker signatures are compared exactly as Atom.equalMarkers would
+        ArrayList<ArrayList<Marker>> signatures = g.getSignatures();
+        numSignatures = signatures.size();
+        signatureWords = (numSignatures + 63) >>> 6;
+        markerBits = new long[numSignatures * signatureWords];
+        for (int i = 0; i < numSignatures; i++)
+        {
+            for (int j = 0; j < numSignatures; j++)
+            {
+                if (markersAgree(signatures.get(i), signatures.get(j)))
+                {
+                    markerBits[i * signatureWords + (j >>> 6)] |= 1L << j;
+                }
+            }
+        }
+    }
+
+    // Return the packed code of an atom with the given type ID, adjoint, and
+    // marker signature
+    public static long encode(int typeId, int adjoint, int signature)
+    {
+        return ((long) adjoint << 48) | ((long) signature << 24) | typeId;
+    }
+
+    // Return the atom type ID of a packed atom
+    public static int typeOf(long code)
+    {
+        return (int) (code & 0xFFFFFF);
+    }
+
+    // Return the marker signature of a packed atom
+    public static int signatureOf(long code)
+    {
+        return (int) ((code >>> 24) & 0xFFFFFF);
+    }
+
+    // Return the adjoint value of a packed atom
+    public static int adjointOf(long code)
+    {
+        return (int) (code >> 48);
+    }
+
+    // Return the packed code of an atom resolved by the grammar, or -1 if its
+    // markers are unknown to the grammar
+    public long encode(Atom a)
+    {
+        int signature = g.getSignature(a);
+        if (signature < 0)
+            return -1;
+        return encode(g.getId(a), a.getAdjoint(), signature);
+    }
+
+    // Return true if two atom types may link according to the reduction
+    // rules and the dummy rule, false otherwise
+    public boolean linkable(int t1, int t2)
+    {
+        return (typeBits[t1 * typeWords + (t2 >>> 6)] & (1L << t2)) != 0;
+    }
+
+    // Return the family of the given type
+    public int getFamily(int typeId)
+    {
+        return family[typeId];
+    }
+
+    // Return the number of type families
+    public int getFamilyCount()
+    {
+        return numFamilies;
+    }
+
+    // Return the number of marker signatures
+    public int getSignatureCount()
+    {
+        return numSignatures;
+    }
+
+    // Return true if atoms with the given marker signatures agree in at least
+    // one order, false otherwise
+    public boolean compatible(int s1, int s2)
+    {
+        return ((markerBits[s1 * signatureWords + (s2 >>> 6)] & (1L << s2)) != 0)
+            || ((markerBits[s2 * signatureWords + (s1 >>> 6)] & (1L << s1)) != 0);
+    }
+
+    // Return true if an atom of the given type may be the one atom left
+    // unlinked by a successful parse, false otherwise
+    public boolean isStandalone(int typeId)
+    {
+        return standalone[typeId];
+    }
+
+    // Return true if the left and right packed atoms reduce, false otherwise
+    public boolean reduces(long left, long right)
+    {
+        if ((int) (right >> 48) - (int) (left >> 48) != 1)
+            return false;
+        int t1 = (int) (left & 0xFFFFFF);
+        int t2 = (int) (right & 0xFFFFFF);
+        if ((typeBits[t1 * typeWords + (t2 >>> 6)] & (1L << t2)) == 0)
+            return false;
+        int s1 = (int) ((left >>> 24) & 0xFFFFFF);
+        int s2 = (int) ((right >>> 24) & 0xFFFFFF);
+        return (markerBits[s1 * signatureWords + (s2 >>> 6)] & (1L << s2)) != 0;
+    }
+
+    // Return true if a1 (on the left) reduces with a2 (on the right), false
+    // otherwise; agrees with PregroupParsing.reduces
+    public boolean reduces(Atom a1, Atom a2)
+    {
+        long left = encode(a1);
+        long right = encode(a2);
+        if ((left == -1) || (right == -1))
+        {
+            return (a2.getAdjoint() - a1.getAdjoint() == 1)
+                && linkable(g.getId(a1), g.getId(a2))
+                && markersAgree(a1.getMarkers(), a2.getMarkers());
+        }
+        return reduces(left, right);
+    }
+
+    // Return true if two marker sets are compatible in the sense of
+    // Atom.equalMarkers (unmarked atoms agree with everything), false otherwise
+    public static boolean markersAgree(List<Marker> m1, List<Marker> m2)
+    {
+        if ((m1 == null) || (m2 == null) || (m1.size() == 0) || (m2.size() == 0))
+            return true;
+        if (m1.size() > m2.size())
+            return false;
+        for (int i = 0; i < m1.size(); i++)
+        {
+            if (!(m1.get(i).equals(m2.get(i))))
+                return false;
+        }
+        return true;
+    }
+}
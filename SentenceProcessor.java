@@ -0,0 +1,156 @@
+/*****************************************************************************
+  * SentenceProcessor.java
+  * Author: Olivia Waring
+  * Carries one line of a corpus through dictionary lookup (with morphological
+  * modifications), parsing, and reporting; holds no per-sentence state, so it
+  * may process many lines at once
+  *****************************************************************************/
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class SentenceProcessor
+{
+    private LambekGrammar g; // representation of a Lambek Grammar
+    private PregroupParser parser; // stack-based parser
+    private ChartParser chart; // chart parser
+    private GraphStackParser graph; // graph-structured stack parser
+    private TypeFilter filter; // removes types that cannot take part in a parse
+    private ParseStatistics stats; // counters to update (or null)
+    private Tokenizer tokenizer; // splits lines into words
+    private WordCache cache; // entries of recent words needing analysis (or null)
+    private String mode; // "stack", "chart", or "graph"
+    private ForkJoinPool pathPool; // pool for searching paths in parallel
+
+    // Return a new processor for the given grammar, using the parser of the
+    // given mode: "stack", "chart", or "graph"
+    public SentenceProcessor(LambekGrammar lg, String parsing)
+    {
+        this(lg, parsing, null);
+    }
+
+    // Return a new processor for the given grammar which, unless the pool is
+    // null, searches the paths of each sentence in parallel on that pool
+    // (in "stack" mode)
+    public SentenceProcessor(LambekGrammar lg, String parsing, ForkJoinPool pool)
+    {
+        g = lg;
+        parser = new PregroupParser(g);
+        chart = new ChartParser(g);
+        graph = new GraphStackParser(g, parser);
+        filter = new TypeFilter(g);
+        stats = null;
+        mode = parsing;
+        pathPool = pool;
+        tokenizer = Tokenizer.forLanguage("default");
+        cache = new WordCache(g.getAnalyzer(), 1 << 16);
+    }
+
+    // Keep the given counters up to date while parsing
+    public void setStatistics(ParseStatistics ps)
+    {
+        stats = ps;
+        parser.setStatistics(ps);
+    }
+    
+    // Split lines into words with the given tokenizer
+    public void setTokenizer(Tokenizer t)
+    {
+        tokenizer = t;
+    }
+
+    // Remember the entries of words needing morphological analysis in the
+    // given cache (or in none, if it is null)
+    public void setCache(WordCache wc)
+    {
+        cache = wc;
+    }
+
+    // Return the cache of entries of words needing analysis (or null)
+    public WordCache getCache()
+    {
+        return cache;
+    }
+
+    // Process a line of the corpus and return its report
+    public SentenceResult process(String line)
+    {
+        StringWriter buffer = new StringWriter();
+        PrintWriter out = new PrintWriter(buffer);
+        int[] tokens = tokenizer.tokenize(line); // Offsets of individual words
+        ArrayList<ArrayList<Type>> toProcess = new ArrayList<ArrayList<Type>>();
+        int nesting = 0;
+        
+        // Process each word of the line, in order, implementing morphological 
+        // modifications where necessary; a word with no form in the 
+        // dictionary has no types, so the sentence cannot be parsed
+        MorphologicalAnalyzer analyzer = g.getAnalyzer();
+        for (int i = 0; i < tokens.length / 2; i++)
+        {
+            Entry entry;
+            if (cache == null)
+                entry = analyzer.analyze(line, tokens[2 * i], tokens[2 * i + 1]);
+            else
+            {
+                entry = analyzer.find(line, tokens[2 * i], tokens[2 * i + 1]);
+                if (entry == null)
+                    entry = cache.lookup(line.substring(tokens[2 * i], tokens[2 * i + 1]));
+            }
+            if (entry == null)
+                toProcess.add(new ArrayList<Type>());
+            else
+            {
+                ArrayList<Type> types = entry.getTypes();
+                assert(types != null):"No type associated with this word.";
+                toProcess.add(types);
+            }
+        }
+        
+        // Execute parsing algorithm, either for each possible path 
+        // in turn or for all paths at once
+        ParseResult result;
+        boolean useChart = mode.equals("chart");
+        if (!useChart)
+        {
+            ArrayList<ArrayList<Type>> filtered = filter.filter(toProcess);
+            if (stats != null)
+                stats.recordFiltered(PathIterator.countPaths(toProcess)
+                                     - PathIterator.countPaths(filtered));
+            toProcess = filtered;
+        }
+        if (useChart)
+            result = chart.parse(toProcess);
+        else if (mode.equals("graph"))
+            result = graph.parse(toProcess);
+        else if (pathPool != null)
+            result = parser.parse(toProcess, pathPool);
+        else
+            result = parser.parse(toProcess);
+        
+        // If successfully parsed, print "winning" path and list of links
+        if (result.isGrammatical())
+        {
+            if (useChart)
+                out.println("Chart parse");
+            else if (result.isRetry())
+                out.println("Second try");
+            else
+                out.println("First try!");
+            List<Type> currentPath = result.getPath();
+            int i;
+            for (i=0; i < currentPath.size()-1; i++)
+            {
+                out.print(currentPath.get(i).toString() + ", ");
+            }
+            out.println(currentPath.get(i).toString());
+            for (Link l: result.getLinks())
+                out.print(l.toString()+" ");
+            nesting = result.getNesting();
+        }
+        else
+            out.println("No solution. :(");
+        out.flush();
+        return new SentenceResult(buffer.toString(), result, nesting);
+    }
+}
@@ -0,0 +1,39 @@
+/*****************************************************************************
+  * SentenceResult.java
+  * Author: Olivia Waring
+  * Represents the outcome of processing one line of a corpus: the report to be
+  * printed for it, the parse result, and its degree of nesting
+  *****************************************************************************/
+
+public class SentenceResult
+{
+    private final String output; // text reported for the sentence
+    private final ParseResult result; // outcome of parsing the sentence
+    private final int nesting; // degree of nesting (0 if unparsed)
+
+    // Return a new sentence result
+    public SentenceResult(String text, ParseResult parse, int degree)
+    {
+        output = text;
+        result = parse;
+        nesting = degree;
+    }
+
+    // Return text reported for the sentence
+    public String getOutput()
+    {
+        return output;
+    }
+
+    // Return outcome of parsing the sentence
+    public ParseResult getResult()
+    {
+        return result;
+    }
+
+    // Return degree of nesting of the sentence
+    public int getNesting()
+    {
+        return nesting;
+    }
+}
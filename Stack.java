@@ -4,38 +4,44 @@
   * Represents a FILO data structure for processing atom sequences
   *****************************************************************************/
 
-import java.util.ArrayList;
-
 public class Stack
 {
-    ArrayList<Integer> stack; // list of atom indices
+    int[] stack; // list of atom indices
+    int height; // number of indices on the stack
     
     // Return new stack object
     public Stack()
     {
-        stack = new ArrayList<Integer>();
+        stack = new int[16];
+        height = 0;
     }
     
     // Add new atom index to top of stack
-    public void push(Integer i)
+    public void push(int i)
     {
-        stack.add(i);
+        if (height == stack.length)
+        {
+            int[] larger = new int[2 * stack.length];
+            System.arraycopy(stack, 0, larger, 0, height);
+            stack = larger;
+        }
+        stack[height++] = i;
     }
     
     // Pop most recently-added item off stack
-    public Integer pop()
+    public int pop()
     {
-        return stack.remove(stack.size()-1);
+        return stack[--height];
     }
     
     // Return most recently-added item, but keep it on the stack; if stack is 
     // empty, return -1
-    public Integer top()
+    public int top()
     {
-        Integer i = -1;
-        if (stack.size() > 0)
+        int i = -1;
+        if (height > 0)
         {
-            i = stack.get(stack.size()-1);
+            i = stack[height-1];
         }
         return i;
     }
@@ -43,24 +49,30 @@ public class Stack
     // Return height of stack
     public int getHeight()
     {
-        return stack.size();
+        return height;
+    }
+    
+    // Remove every item from the stack (keeping its storage for reuse)
+    public void clear()
+    {
+        height = 0;
     }
     
     // Return a string representation of stack
     public String toString()
     {
         String stackString = "[";
-        if (stack.size() == 0)
+        if (height == 0)
             stackString += "]";
         else
         {
             int i;
-            for (i = 0; i < stack.size()-1; i++)
+            for (i = 0; i < height-1; i++)
             {
-                stackString += stack.get(i);
+                stackString += stack[i];
                 stackString += ",";
             } 
-            stackString += stack.get(i) + "]";
+            stackString += stack[i] + "]";
         }
         return stackString;
     }
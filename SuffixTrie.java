@@ -0,0 +1,92 @@
+/*****************************************************************************
+  * SuffixTrie.java
+  * Author: Olivia Waring
+  * Holds a list of suffixes in a trie of their reversed characters, so that
+  * every suffix of the list that a word ends with is found in one backward
+  * scan of the word's last few characters
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class SuffixTrie
+{
+    private HashMap<Long,Integer> children; // child of each node for each character
+    private ArrayList<int[]> indices; // suffixes ending at each node, ascending
+    private int[] lengths; // length of each suffix
+    private int nodes; // number of nodes
+
+    // Return a new trie of the given suffixes, numbered in list order
+    public SuffixTrie(ArrayList<String> suffixes)
+    {
+        children = new HashMap<Long,Integer>();
+        indices = new ArrayList<int[]>();
+        indices.add(new int[0]);
+        nodes = 1;
+        lengths = new int[suffixes.size()];
+        for (int i = 0; i < suffixes.size(); i++)
+        {
+            String s = suffixes.get(i);
+            lengths[i] = s.length();
+            int node = 0;
+            for (int p = s.length() - 1; p >= 0; p--)
+            {
+                long key = key(node, s.charAt(p));
+                Integer child = children.get(key);
+                if (child == null)
+                {
+                    child = nodes++;
+                    children.put(key, child);
+                    indices.add(new int[0]);
+                }
+                node = child;
+            }
+            int[] here = indices.get(node);
+            here = Arrays.copyOf(here, here.length + 1);
+            here[here.length - 1] = i; // suffixes are added in ascending order
+            indices.set(node, here);
+        }
+    }
+
+    // Return the key of the child of a node for a character
+    private static long key(int node, char c)
+    {
+        return ((long) node << 16) | c;
+    }
+
+    // Return the number (in list order) of the first suffix numbered from or
+    // later that the characters of word before end finish with, or -1 if none
+    public int match(CharSequence word, int end, int from)
+    {
+        int best = first(indices.get(0), from, -1);
+        int node = 0;
+        for (int p = end - 1; p >= 0; p--)
+        {
+            Integer child = children.get(key(node, word.charAt(p)));
+            if (child == null)
+                break;
+            node = child;
+            best = first(indices.get(node), from, best);
+        }
+        return best;
+    }
+
+    // Return the smaller of best (unless it is -1) and the first of the
+    // ascending indices that is at least from
+    private static int first(int[] here, int from, int best)
+    {
+        for (int i: here)
+        {
+            if (i >= from)
+                return ((best < 0) || (i < best)) ? i : best;
+        }
+        return best;
+    }
+
+    // Return the length of the given suffix
+    public int getLength(int suffix)
+    {
+        return lengths[suffix];
+    }
+}
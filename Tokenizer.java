@@ -0,0 +1,130 @@
+/*****************************************************************************
+  * Tokenizer.java
+  * Author: Olivia Waring
+  * Splits a line of text into words at delimiter characters, looked up in a
+  * table of code points prepared once per language, and returns the offsets
+  * of the words rather than copies of them
+  *****************************************************************************/
+
+import java.util.Arrays;
+
+public class Tokenizer
+{
+    // Delimiters of the original corpus reader: space . , ; : ? and ! to )
+    private static final int[] ASCII = { ' ', '.', ',', ';', ':', '?',
+        '!', '"', '#', '$', '%', '&', '\'', '(', ')' };
+
+    // Tibetan shad and related marks ending phrases and sentences
+    private static final int[] SHAD = { 0x0F08, 0x0F0D, 0x0F0E, 0x0F0F, 0x0F10,
+        0x0F11, 0x0F12, 0x0F14 };
+
+    // Tibetan tsheg (intersyllabic mark) and its non-breaking form
+    private static final int[] TSHEG = { 0x0F0B, 0x0F0C };
+
+    // CJK ideographic space, punctuation, brackets, and full-width forms
+    private static final int[] CJK = { 0x3000, 0x3001, 0x3002, 0x300C, 0x300D,
+        0x300E, 0x300F, 0x3010, 0x3011, 0xFF01, 0xFF08, 0xFF09, 0xFF0C, 0xFF0E,
+        0xFF1A, 0xFF1B, 0xFF1F };
+
+    private long[] basic; // delimiters of the Basic Multilingual Plane
+    private int[] supplementary; // delimiters beyond it, in ascending order
+
+    // Return a new tokenizer splitting at the given code points
+    public Tokenizer(int[] delimiters)
+    {
+        basic = new long[1 << 10];
+        int count = 0;
+        int[] beyond = new int[delimiters.length];
+        for (int c: delimiters)
+        {
+            if (c < 0x10000)
+                basic[c >>> 6] |= 1L << c;
+            else
+                beyond[count++] = c;
+        }
+        supplementary = Arrays.copyOf(beyond, count);
+        Arrays.sort(supplementary);
+    }
+
+    // Return a new tokenizer splitting at the characters of the given string
+    public Tokenizer(String delimiters)
+    {
+        this(delimiters.codePoints().toArray());
+    }
+
+    // Return the tokenizer for a language: "ascii" (the original delimiters),
+    // "default" (those, with Tibetan shad and CJK punctuation), or "tibetan"
+    // (also splitting syllables at the tsheg)
+    public static Tokenizer forLanguage(String language)
+    {
+        if (language.equals("ascii"))
+            return new Tokenizer(ASCII);
+        if (language.equals("default"))
+            return new Tokenizer(join(ASCII, SHAD, CJK));
+        if (language.equals("tibetan"))
+            return new Tokenizer(join(ASCII, SHAD, CJK, TSHEG));
+        throw new IllegalArgumentException("Unknown tokenizer language: " + language);
+    }
+
+    // Return the concatenation of the given code point lists
+    private static int[] join(int[]... lists)
+    {
+        int size = 0;
+        for (int[] list: lists)
+        {
+            size += list.length;
+        }
+        int[] all = new int[size];
+        int at = 0;
+        for (int[] list: lists)
+        {
+            System.arraycopy(list, 0, all, at, list.length);
+            at += list.length;
+        }
+        return all;
+    }
+
+    // Return true if the code point is a delimiter, false otherwise
+    public boolean isDelimiter(int c)
+    {
+        if (c < 0x10000)
+            return (basic[c >>> 6] & (1L << c)) != 0;
+        return Arrays.binarySearch(supplementary, c) >= 0;
+    }
+
+    // Return the offsets of the words of the text: the start of word i is at
+    // 2i and its end (exclusive) at 2i+1; runs of delimiters separate words,
+    // and no word is empty
+    public int[] tokenize(CharSequence text)
+    {
+        int words = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); )
+        {
+            int c = Character.codePointAt(text, i);
+            boolean delimiter = isDelimiter(c);
+            if ((!delimiter) && (!inWord))
+                words++;
+            inWord = !delimiter;
+            i += Character.charCount(c);
+        }
+
+        int[] offsets = new int[2 * words];
+        int w = 0;
+        inWord = false;
+        for (int i = 0; i < text.length(); )
+        {
+            int c = Character.codePointAt(text, i);
+            boolean delimiter = isDelimiter(c);
+            if ((!delimiter) && (!inWord))
+                offsets[w++] = i;
+            else if ((delimiter) && (inWord))
+                offsets[w++] = i;
+            inWord = !delimiter;
+            i += Character.charCount(c);
+        }
+        if (inWord)
+            offsets[w] = text.length();
+        return offsets;
+    }
+}
@@ -1,28 +1,36 @@
 /*****************************************************************************
   * Type.java
   * Author: Olivia Waring
-  * Represents a compound type in Type Categorial Grammar
+  * Represents a compound type in Type Categorial Grammar; types are immutable
+  * values (apart from the packed offset a grammar stamps on them), so equal
+  * types may be shared, and a grammar interns those of its entries
   *****************************************************************************/
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class Type // Blind to generics
 {
-    private int length; // number of atoms (q)
-    private ArrayList<Atom> compoundType; // list of atoms comprising the compound type
+    private final int length; // number of atoms (q)
+    private final List<Atom> compoundType; // atoms comprising the compound type (read-only)
+    private int offset; // start of the packed atoms in the grammar's atom pool
+                        // (-1 if the type has not been packed)
+    private int hash; // cached hash code (0 until computed)
     
     // Return a new, netural type
     public Type()
     {
         length = 0;
         compoundType = null;
+        offset = -1;
     }
     
     // Return a new type with a specified list of atoms
-    public Type (ArrayList<Atom> atoms)
+    public Type (List<Atom> atoms)
     {
         length = atoms.size();
-        compoundType = atoms;
+        compoundType = Atom.readOnly(atoms);
+        offset = -1;
     }
     
     // Return number of atoms
@@ -31,6 +39,19 @@ public class Type // Blind to generics
         return length;
     }
     
+    // Return start of the packed atoms in the grammar's atom pool, or -1 if 
+    // the type has not been packed
+    public int getPackedOffset()
+    {
+        return offset;
+    }
+    
+    // Set start of the packed atoms in the grammar's atom pool
+    public void setPackedOffset(int i)
+    {
+        offset = i;
+    }
+    
     // Return a string representation of the type
     public String toString()
     {
@@ -42,14 +63,15 @@ public class Type // Blind to generics
         return atomList;
     }
     
-    // Return atom list
-    public ArrayList<Atom> getAtoms()
+    // Return (read-only) atom list
+    public List<Atom> getAtoms()
     {
         return compoundType;
     }
     
-    // Return true if equivalent to other, false otherwise
-    public boolean equals(Type other)
+    // Return true if each atom matches the corresponding atom of other (see
+    // Atom.matches), false otherwise
+    public boolean matches(Type other)
     {
         boolean flag = false;
         if (other.length != this.length)
@@ -60,7 +82,7 @@ public class Type // Blind to generics
         {
             for (int i = 0; i < this.length; i++)
             {
-                if (this.compoundType.get(i).equals(other.compoundType.get(i)))
+                if (this.compoundType.get(i).matches(other.compoundType.get(i)))
                 {
                     flag = true;
                 }
@@ -74,16 +96,39 @@ public class Type // Blind to generics
         return flag;
     }
     
-    // Create a new copy of the type in question
-    public Type copy()
+    // Return true if the other object is a type with equal atoms, in the
+    // same order, false otherwise
+    public boolean equals(Object o)
     {
-        ArrayList<Atom> atoms = new ArrayList<Atom>();
-        for (Atom a: compoundType)
+        if (o == this)
+            return true;
+        if (!(o instanceof Type))
+            return false;
+        Type other = (Type) o;
+        if (this.hashCode() != other.hashCode())
+            return false;
+        return (compoundType == null) ? (other.compoundType == null) 
+            : compoundType.equals(other.compoundType);
+    }
+    
+    // Return a hash code consistent with equals, computed once
+    public int hashCode()
+    {
+        int h = hash;
+        if (h == 0)
         {
-            Atom tempAtom = a.copy();
-            atoms.add(tempAtom);
+            h = (compoundType == null) ? 0 : compoundType.hashCode();
+            if (h == 0)
+                h = 1;
+            hash = h;
         }
-        return (new Type(atoms));
+        return h;
+    }
+    
+    // Return a copy of the type in question; types are immutable, so the type
+    // itself serves
+    public Type copy()
+    {
+        return this;
     }
 }
-    
\ No newline at end of file
@@ -0,0 +1,266 @@
+/*****************************************************************************
+  * TypeFilter.java
+  * Author: Olivia Waring
+  * Removes from the candidate types of each word of a sentence those that
+  * cannot appear in any successful parse, because too many of their atoms
+  * could never be linked, whatever types the other words take
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/* An atom is an orphan if no atom of the same type or of a remaining type of
+ another word could ever link with it: on its left, an atom one adjoint lower,
+ and on its right, one adjoint higher, whose type and markers agree with its
+ own. Atoms of types that might occur 4 or more times in the sentence are
+ never orphans, since they might be cancelled. A parse leaves one atom
+ unlinked, which must be standalone, so a type with two orphans, or with one
+ that is not standalone, can be dropped; and once some word has an orphan
+ whatever its type, the types of every other word that have one can be
+ dropped. Dropping a type leaves the remaining paths in the same order, and
+ never drops one that parses, so the winning path does not change. */
+public class TypeFilter
+{
+    private LambekGrammar g; // representation of a Lambek Grammar
+
+    // Return a new filter for the given grammar
+    public TypeFilter(LambekGrammar lg)
+    {
+        g = lg;
+    }
+
+    // Return the candidate types of each word that survive filtering, in the
+    // same order; if none are dropped, the given lists are returned as is
+    public ArrayList<ArrayList<Type>> filter(ArrayList<ArrayList<Type>> words)
+    {
+        ReductionKernel kernel = g.getKernel();
+        boolean[][] mappings = g.getMapping();
+        int numAtoms = g.getAtomList().length;
+        int m = words.size();
+
+        // Number the distinct packed atoms of the sentence
+        HashMap<Long,Integer> kindIds = new HashMap<Long,Integer>();
+        ArrayList<Long> kinds = new ArrayList<Long>();
+        int[][][] atoms = new int[m][][]; // kind of each atom of each type
+        int[] most = new int[numAtoms]; // greatest count of each atom type
+        for (int k = 0; k < m; k++)
+        {
+            ArrayList<Type> types = words.get(k);
+            atoms[k] = new int[types.size()][];
+            int[] wordMost = new int[numAtoms];
+            for (int t = 0; t < types.size(); t++)
+            {
+                List<Atom> subset = types.get(t).getAtoms();
+                atoms[k][t] = new int[subset.size()];
+                int[] counts = new int[numAtoms];
+                for (int j = 0; j < subset.size(); j++)
+                {
+                    long code = kernel.encode(subset.get(j));
+                    if (code == -1)
+                        return words; // markers unknown to the grammar
+                    Integer id = kindIds.get(code);
+                    if (id == null)
+                    {
+                        id = kinds.size();
+                        kinds.add(code);
+                        kindIds.put(code, id);
+                    }
+                    atoms[k][t][j] = id;
+                    for (int i = 0; i < numAtoms; i++)
+                    {
+                        if (mappings[ReductionKernel.typeOf(code)][i])
+                            counts[i]++;
+                    }
+                }
+                for (int i = 0; i < numAtoms; i++)
+                {
+                    wordMost[i] = Math.max(wordMost[i], counts[i]);
+                }
+            }
+            for (int i = 0; i < numAtoms; i++)
+            {
+                most[i] += wordMost[i];
+            }
+        }
+
+        // Record which kinds may link on the left and on the right of each
+        // other, and which may be cancelled
+        int n = kinds.size();
+        int width = (n + 63) >>> 6;
+        long[][] leftOf = new long[n][width]; // kinds that may link on the left
+        long[][] rightOf = new long[n][width]; // kinds that may link on the right
+        boolean[] cancellable = new boolean[n];
+        for (int x = 0; x < n; x++)
+        {
+            long a = kinds.get(x);
+            for (int y = 0; y < n; y++)
+            {
+                long b = kinds.get(y);
+                if (kernel.reduces(b, a))
+                    leftOf[x][y >>> 6] |= 1L << y;
+                if (kernel.reduces(a, b))
+                    rightOf[x][y >>> 6] |= 1L << y;
+            }
+            for (int i = 0; i < numAtoms; i++)
+            {
+                if ((mappings[ReductionKernel.typeOf(a)][i]) && (most[i] >= 4))
+                    cancellable[x] = true;
+            }
+        }
+
+        // Drop types until every remaining one could take part in a parse
+        boolean[][] alive = new boolean[m][];
+        long[][] avail = new long[m][]; // kinds of the remaining types of each word
+        for (int k = 0; k < m; k++)
+        {
+            alive[k] = new boolean[atoms[k].length];
+            avail[k] = new long[width];
+            for (int t = 0; t < alive[k].length; t++)
+            {
+                alive[k][t] = true;
+                for (int x: atoms[k][t])
+                {
+                    avail[k][x >>> 6] |= 1L << x;
+                }
+            }
+        }
+        boolean dropped = false;
+        boolean changed = true;
+        int[][] orphans = new int[m][];
+        for (int k = 0; k < m; k++)
+        {
+            orphans[k] = new int[atoms[k].length];
+        }
+        long[][] before = new long[m + 1][width]; // kinds of the words before each
+        long[][] after = new long[m + 1][width]; // kinds of the words after each
+        while (changed)
+        {
+            changed = false;
+            for (int k = 0; k < m; k++)
+            {
+                for (int w = 0; w < width; w++)
+                {
+                    before[k + 1][w] = before[k][w] | avail[k][w];
+                }
+            }
+            for (int k = m - 1; k >= 0; k--)
+            {
+                for (int w = 0; w < width; w++)
+                {
+                    after[k][w] = after[k + 1][w] | avail[k][w];
+                }
+            }
+
+            // Count the orphans of each remaining type
+            int forced = -1; // word that has an orphan whatever its type
+            int numForced = 0;
+            for (int k = 0; k < m; k++)
+            {
+                boolean always = true;
+                for (int t = 0; t < atoms[k].length; t++)
+                {
+                    if (!alive[k][t])
+                        continue;
+                    orphans[k][t] = 0;
+                    boolean stray = false; // whether an orphan is not standalone
+                    int[] type = atoms[k][t];
+                    for (int j = 0; j < type.length; j++)
+                    {
+                        if ((!cancellable[type[j]])
+                                && (!linked(type, j, leftOf, rightOf, before[k], after[k + 1])))
+                        {
+                            orphans[k][t]++;
+                            if (!kernel.isStandalone(ReductionKernel.typeOf(kinds.get(type[j]))))
+                                stray = true;
+                        }
+                    }
+                    if ((orphans[k][t] >= 2) || (stray))
+                    {
+                        alive[k][t] = false;
+                        changed = true;
+                    }
+                    else if (orphans[k][t] == 0)
+                        always = false;
+                }
+                if (always)
+                {
+                    forced = k;
+                    numForced++;
+                }
+            }
+
+            // Only one atom is left unlinked, so at most one word may have an
+            // orphan, and if one always does, no other word may have one
+            for (int k = 0; k < m; k++)
+            {
+                for (int t = 0; t < atoms[k].length; t++)
+                {
+                    if ((alive[k][t]) && (numForced > 0) && ((numForced > 1) || (k != forced))
+                            && (orphans[k][t] > 0))
+                    {
+                        alive[k][t] = false;
+                        changed = true;
+                    }
+                }
+            }
+
+            // Recompute the kinds of each word's remaining types
+            if (changed)
+            {
+                dropped = true;
+                for (int k = 0; k < m; k++)
+                {
+                    avail[k] = new long[width];
+                    for (int t = 0; t < atoms[k].length; t++)
+                    {
+                        if (!alive[k][t])
+                            continue;
+                        for (int x: atoms[k][t])
+                        {
+                            avail[k][x >>> 6] |= 1L << x;
+                        }
+                    }
+                }
+            }
+        }
+        if (!dropped)
+            return words;
+
+        // Keep the remaining types, in their original order
+        ArrayList<ArrayList<Type>> remaining = new ArrayList<ArrayList<Type>>(m);
+        for (int k = 0; k < m; k++)
+        {
+            ArrayList<Type> types = new ArrayList<Type>();
+            for (int t = 0; t < atoms[k].length; t++)
+            {
+                if (alive[k][t])
+                    types.add(words.get(k).get(t));
+            }
+            remaining.add(types);
+        }
+        return remaining;
+    }
+
+    // Return true if atom j of the given type could link with another atom of
+    // the type or with one of the kinds available before or after its word
+    private static boolean linked(int[] type, int j, long[][] leftOf, long[][] rightOf,
+                                  long[] before, long[] after)
+    {
+        int x = type[j];
+        for (int i = 0; i < type.length; i++)
+        {
+            int y = type[i];
+            if ((i < j) && ((leftOf[x][y >>> 6] & (1L << y)) != 0))
+                return true;
+            if ((i > j) && ((rightOf[x][y >>> 6] & (1L << y)) != 0))
+                return true;
+        }
+        for (int w = 0; w < before.length; w++)
+        {
+            if (((leftOf[x][w] & before[w]) != 0) || ((rightOf[x][w] & after[w]) != 0))
+                return true;
+        }
+        return false;
+    }
+}
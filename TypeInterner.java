@@ -0,0 +1,71 @@
+/*****************************************************************************
+  * TypeInterner.java
+  * Author: Olivia Waring
+  * Keeps one canonical instance of each distinct atom and type, so that
+  * identical lexical types are shared across a whole grammar; safe to use
+  * from many threads at once
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TypeInterner
+{
+    private ConcurrentHashMap<Atom, Atom> atoms; // canonical atoms
+    private ConcurrentHashMap<Type, Type> types; // canonical types
+
+    // Return a new, empty interner
+    public TypeInterner()
+    {
+        atoms = new ConcurrentHashMap<Atom, Atom>();
+        types = new ConcurrentHashMap<Type, Type>();
+    }
+
+    // Return the canonical atom equal to the given one
+    public Atom intern(Atom a)
+    {
+        Atom canonical = atoms.putIfAbsent(a, a);
+        return (canonical == null) ? a : canonical;
+    }
+
+    // Return the canonical type equal to the given one, whose atoms are
+    // canonical too
+    public Type intern(Type t)
+    {
+        Type canonical = types.get(t);
+        if (canonical != null)
+            return canonical;
+        List<Atom> list = t.getAtoms();
+        ArrayList<Atom> canonicalAtoms = new ArrayList<Atom>(list.size());
+        for (Atom a: list)
+        {
+            canonicalAtoms.add(intern(a));
+        }
+        Type fresh = new Type(canonicalAtoms);
+        canonical = types.putIfAbsent(fresh, fresh);
+        return (canonical == null) ? fresh : canonical;
+    }
+
+    // Intern each of the types of an entry in place
+    public void intern(Entry e)
+    {
+        ArrayList<Type> list = e.getTypes();
+        for (int i = 0; i < list.size(); i++)
+        {
+            list.set(i, intern(list.get(i)));
+        }
+    }
+
+    // Return the number of distinct atoms interned
+    public int getAtomCount()
+    {
+        return atoms.size();
+    }
+
+    // Return the number of distinct types interned
+    public int getTypeCount()
+    {
+        return types.size();
+    }
+}
@@ -0,0 +1,93 @@
+/*****************************************************************************
+  * WordCache.java
+  * Author: Olivia Waring
+  * Remembers the lexical entry found for each recent surface form of a word
+  * missing from the dictionary (or that none was found), so that the
+  * morphological analysis of a form recurring throughout a corpus is done
+  * once; safe to share between threads
+  *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/* The cache is split into stripes by hash, each a least-recently-used map
+ guarded by its own lock, so threads looking up different words seldom wait
+ for each other. The forms of the analyzer are always tried in the same
+ order, even if a later one resolves more words: the first form found
+ decides which entry a word gets. */
+public class WordCache
+{
+    private static final Object UNKNOWN = new Object(); // no entry was found
+    private static final int STRIPES = 16; // number of independently locked maps
+
+    private MorphologicalAnalyzer analyzer; // finds entries on a miss
+    private ArrayList<Map<String,Object>> stripes; // entries of recent forms
+    private LongAdder hits; // lookups answered by the cache
+    private LongAdder misses; // lookups passed to the analyzer
+
+    // Return a new cache of about the given number of forms in front of the
+    // given analyzer
+    public WordCache(MorphologicalAnalyzer ma, int capacity)
+    {
+        analyzer = ma;
+        final int limit = Math.max(1, capacity / STRIPES);
+        stripes = new ArrayList<Map<String,Object>>(STRIPES);
+        for (int i = 0; i < STRIPES; i++)
+        {
+            stripes.add(new LinkedHashMap<String,Object>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<String,Object> eldest)
+                {
+                    return size() > limit;
+                }
+            });
+        }
+        hits = new LongAdder();
+        misses = new LongAdder();
+    }
+
+    // Return the lexical entry for the surface form of a word not in the
+    // dictionary as it stands (see MorphologicalAnalyzer.find), or null if no
+    // modified form of it is in the dictionary either
+    public Entry lookup(String word)
+    {
+        int h = word.hashCode();
+        Map<String,Object> stripe = stripes.get(((h ^ (h >>> 16)) & 0x7FFFFFFF) % STRIPES);
+        Object cached;
+        synchronized (stripe)
+        {
+            cached = stripe.get(word);
+        }
+        if (cached != null)
+        {
+            hits.increment();
+            return (cached == UNKNOWN) ? null : (Entry) cached;
+        }
+        misses.increment();
+        Entry entry = analyzer.modify(word);
+        synchronized (stripe)
+        {
+            stripe.put(word, (entry == null) ? UNKNOWN : entry);
+        }
+        return entry;
+    }
+
+    // Return the number of lookups answered by the cache
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    // Return the number of lookups passed to the analyzer
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    // Return string representation of the counters of the cache
+    public String toString()
+    {
+        return "Word cache hits: " + getHits() + ", misses: " + getMisses();
+    }
+}